@@ -1,11 +1,12 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
-import java.math.BigDecimal;
-import java.math.BigInteger;
 
 /**
  * Utilities for our simple implementation of JSON.
@@ -14,7 +15,8 @@ public class JSON {
     // +---------------+-----------------------------------------------
     // | Static fields |
     // +---------------+
-    static int pos;  // The current position in the input.
+
+    static volatile JSONListener listener;  // Where measurements go, if anywhere.
 
     // +----------------+----------------------------------------------
     // | Static methods |
@@ -28,11 +30,33 @@ public class JSON {
     }
 
     /**
-     * Parse a file into JSON.
+     * Parse a file of UTF-8 JSON, which may be compressed with gzip or zlib
+     * (see parse(InputStream)).
      */
     public static JSONValue parseFile(String filename) throws ParseException, IOException {
-        try (FileReader reader = new FileReader(filename)) {
-            return parse(reader);
+        try (FileInputStream in = new FileInputStream(filename)) {
+            return parse(in);
+        }
+    }
+
+    /**
+     * Parse UTF-8 JSON from a stream.  Input that starts with a gzip or zlib
+     * header is inflated on a separate thread while it is parsed.  The
+     * stream is not closed.
+     */
+    public static JSONValue parse(InputStream source) throws ParseException, IOException {
+        JSONTreeBuilder builder = new JSONTreeBuilder();
+        parse(source, builder);
+        return builder.result();
+    }
+
+    /**
+     * Parse UTF-8 JSON, possibly compressed, from a stream, sending each
+     * event to a handler.  The stream is not closed.
+     */
+    public static void parse(InputStream source, JSONHandler handler) throws ParseException, IOException {
+        try (InputStream in = JSONInflater.open(source)) {
+            parse(new InputStreamReader(in, StandardCharsets.UTF_8), handler);
         }
     }
 
@@ -40,152 +64,146 @@ public class JSON {
      * Parse JSON from a reader.
      */
     public static JSONValue parse(Reader source) throws ParseException, IOException {
-        pos = 0;
-        JSONValue result = parseKernel(source);
-        if (-1 != skipWhitespace(source)) {
-            throw new ParseException("Characters remain at end", pos);
-        }
-        return result;
+        JSONTreeBuilder builder = new JSONTreeBuilder();
+        parse(source, builder);
+        return builder.result();
     }
 
-    // +---------------+-----------------------------------------------
-    // | Local helpers |
-    // +---------------+
+    /**
+     * Parse JSON from a reader, sending each event to a handler instead of
+     * building a tree.
+     */
+    public static void parse(Reader source, JSONHandler handler) throws ParseException, IOException {
+        parse(source, handler, JSONLimits.DEFAULT);
+    }
 
     /**
-     * Parse JSON from a reader, keeping track of the current position.
+     * Parse a string into JSON, rejecting it if it goes past any of limits.
      */
-    static JSONValue parseKernel(Reader source) throws ParseException, IOException {
+    public static JSONValue parse(String source, JSONLimits limits) throws ParseException, IOException {
+        return parse(new StringReader(source), limits);
+    }
 
-        int ch = skipWhitespace(source);
-        if (ch == -1) {
-            throw new ParseException("Unexpected end of file", pos);
-        }
+    /**
+     * Parse JSON from a reader, rejecting it if it goes past any of limits.
+     */
+    public static JSONValue parse(Reader source, JSONLimits limits) throws ParseException, IOException {
+        JSONTreeBuilder builder = new JSONTreeBuilder();
+        parse(source, builder, limits);
+        return builder.result();
+    }
 
-        switch (ch) {
-            case '"': return parseString(source);
-            case '[': return parseArray(source);
-            case '{': return parseObject(source);
-            case 't': case 'f': return parseBoolean(source);
-            case 'n': return parseNull(source);
-            default:
-                if (Character.isDigit(ch) || ch == '-') {
-                    return parseNumber(source, ch);
-                }
-                throw new ParseException("Unexpected character", pos);
-        }
+    /**
+     * Parse JSON from a reader, sending each event to a handler and
+     * rejecting the input as soon as it goes past any of limits.
+     */
+    public static void parse(Reader source, JSONHandler handler, JSONLimits limits)
+            throws ParseException, IOException {
+        parse(source, handler, limits, null);
     }
 
-    static JSONValue parseString(Reader source) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        int c;
-        boolean escaped = false;
-        while ((c = source.read()) != -1) {
-            char character = (char) c;
-            if (escaped) {
-                if (character == 'n') sb.append('\n');
-                else if (character == 't') sb.append('\t');
-                else if (character == '\\') sb.append('\\');
-                else if (character == '"') sb.append('"');
-                escaped = false;
-            } else if (character == '\\') {
-                escaped = true;
-            } else if (character == '"') {
-                break;
-            } else {
-                sb.append(character);
-            }
-            pos++;
-        }
-        return new JSONString(sb.toString());
-    }
-
-    static JSONValue parseArray(Reader source) throws IOException, ParseException {
-        JSONArray array = new JSONArray();
-        int c;
-        // boolean first = true;
-        array.add(parseKernel(source));
-        while ((c = skipWhitespace(source)) != ']') {
-            if (c == -1) throw new ParseException("Unterminated array", pos);
-            // if (!first && c == ',') c = skipWhitespace(source);
-            // if (first) first = false;
-            pos--;
-            array.add(parseKernel(source));
-        }
-        return array;
-    }
-
-    static JSONValue parseObject(Reader source) throws IOException, ParseException {
-        JSONHash object = new JSONHash();
-        int c;
-        boolean first = true;
-        while ((c = skipWhitespace(source)) != '}') {
-            if (c == -1) throw new ParseException("Unterminated object", pos);
-            if (!first && c == ',') c = skipWhitespace(source);
-            if (first) first = false;
-
-            if (c != '"') throw new ParseException("Expected '\"' at the beginning of key in object", pos);
-            JSONString key = (JSONString) parseString(source);
-            if (skipWhitespace(source) != ':') throw new ParseException("Expected ':' after key in object", pos);
-            JSONValue value = parseKernel(source);
-            object.set(key, value);
-        }
-        return object;
+    /**
+     * Parse a string into JSON, building only the parts that projection
+     * selects (see JSONProjection).  Returns null if the top-level value
+     * itself does not fit the projection.
+     */
+    public static JSONValue parse(String source, JSONProjection projection) throws ParseException, IOException {
+        return parse(new StringReader(source), projection);
     }
 
-    static JSONValue parseBoolean(Reader source) throws IOException {
-        source.mark(4);  // To handle true/false
-        char[] tf = new char[5];
-        int n = source.read(tf, 0, 4);
+    /**
+     * Parse JSON from a reader, building only the parts that projection
+     * selects (see JSONProjection).  Returns null if the top-level value
+     * itself does not fit the projection.
+     */
+    public static JSONValue parse(Reader source, JSONProjection projection) throws ParseException, IOException {
+        JSONTreeBuilder builder = new JSONTreeBuilder();
+        parse(source, builder, JSONLimits.DEFAULT, projection);
+        return builder.result();
+    }
 
-        if (n == 4 || n == 3) {
-            String str = new String(tf).trim();
-            if ("rue".equals(str)) return JSONConstant.TRUE;
-            if ("alse".equals(str)) return JSONConstant.FALSE;
+    /**
+     * Parse JSON from a reader, sending a handler events for only the parts
+     * that projection selects (or for everything, if it is null), and
+     * rejecting the input as soon as it goes past any of limits.
+     */
+    public static void parse(Reader source, JSONHandler handler, JSONLimits limits, JSONProjection projection)
+            throws ParseException, IOException {
+        JSONListener current = listener;
+        if (current != null || JSONInstrumentation.parseEventsEnabled()) {
+            JSONInstrumentation.parse(source, handler, limits, projection, current);
+            return;
         }
-        throw new IOException("Invalid boolean value");
+        new JSONParser(source, handler, limits, projection).parse();
     }
 
-    static JSONValue parseNull(Reader source) throws IOException {
-        source.mark(3);
-        char[] nul = new char[4];
-        int n = source.read(nul, 0, 4);
-        if (n == 4 && "ull".equals(new String(nul).trim())) {
-            return JSONConstant.NULL;
-        }
-        throw new IOException("Invalid null value");
-    }
-
-    static JSONValue parseNumber(Reader source, int firstChar) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        sb.append((char) firstChar);
-        while (true) {
-            source.mark(1);
-            int c = source.read();
-            if (Character.isDigit(c) || c == '.' || c == 'e' || c == 'E' || c == '-') {
-                sb.append((char) c);
-            } else {
-                source.reset();
-                break;
-            }
-        }
-        String num = sb.toString();
-        if (num.contains(".") || num.contains("e") || num.contains("E")) {
-            return new JSONReal(new BigDecimal(num));
+    /**
+     * Write a value as JSON.  Unlike value.writeJSON(pen), this is measured
+     * when a listener or flight recording is active.
+     */
+    public static void write(JSONValue value, PrintWriter pen) {
+        JSONListener current = listener;
+        if (current != null || JSONInstrumentation.writeEventsEnabled()) {
+            JSONInstrumentation.write(value, pen, current);
         } else {
-            return new JSONInteger(new BigInteger(num));
+            value.writeJSON(pen);
         }
     }
 
     /**
-     * Skip whitespace characters in the input source.
+     * Measure every parse and write from now on, reporting to listener
+     * (see JSONMetrics).  Pass null to stop.  Without a listener, the
+     * only cost is a volatile read per call (plus the flight recorder's
+     * own check for its json.Parse and json.Write events).
+     */
+    public static void setListener(JSONListener newListener) {
+        listener = newListener;
+    }
+
+    /**
+     * Parse a string into JSON, checking it against a schema as it is read.
+     */
+    public static JSONValue parse(String source, JSONSchema schema) throws ParseException, IOException {
+        return parse(new StringReader(source), schema);
+    }
+
+    /**
+     * Parse JSON from a reader, checking it against a schema as it is read.
+     * The parse stops at the first violation.  Scalars are checked before
+     * they reach the tree, but keywords about a whole object or array
+     * (required, minProperties, minItems, and enum on a container) can
+     * only be checked when it closes, after its contents have been built.
+     * To reject a document without building any of it, use validate.
+     */
+    public static JSONValue parse(Reader source, JSONSchema schema) throws ParseException, IOException {
+        JSONTreeBuilder builder = new JSONTreeBuilder();
+        parse(source, schema.validator(builder));
+        return builder.result();
+    }
+
+    /**
+     * Check JSON from a reader against a schema without building a tree,
+     * throwing a ParseException at the first violation.
+     */
+    public static void validate(Reader source, JSONSchema schema) throws ParseException, IOException {
+        parse(source, schema.validator(null));
+    }
+
+    /**
+     * Parse a string into JSON, computing its fingerprint (see JSONFingerprint)
+     * in the same pass.
+     */
+    public static KVPair<JSONValue, Long> parseWithFingerprint(String source) throws ParseException, IOException {
+        return parseWithFingerprint(new StringReader(source));
+    }
+
+    /**
+     * Parse JSON from a reader, computing its fingerprint (see JSONFingerprint)
+     * in the same pass.
      */
-    static int skipWhitespace(Reader source) throws IOException {
-        int ch;
-        do {
-            ch = source.read();
-            pos++;
-        } while (Character.isWhitespace(ch));
-        return ch;
+    public static KVPair<JSONValue, Long> parseWithFingerprint(Reader source) throws ParseException, IOException {
+        JSONTreeBuilder builder = new JSONTreeBuilder(true);
+        parse(source, builder);
+        return new KVPair<>(builder.result(), builder.fingerprint());
     }
 }
@@ -104,6 +104,13 @@ public class JSONArray implements JSONValue {
     this.values.add(value);
   } // add(JSONValue)
 
+  /**
+   * Insert a value at a particular index, shifting later values up.
+   */
+  public void add(int index, JSONValue value) throws IndexOutOfBoundsException {
+    this.values.add(index, value);
+  } // add(int, JSONValue)
+
   /**
    * Get the value at a particular index.
    */
@@ -118,6 +125,13 @@ public class JSONArray implements JSONValue {
     return this.values.iterator();
   } // iterator()
 
+  /**
+   * Remove the value at a particular index, returning it.
+   */
+  public JSONValue remove(int index) throws IndexOutOfBoundsException {
+    return this.values.remove(index);
+  } // remove(int)
+
   /**
    * Set the value at a particular index.
    */
@@ -0,0 +1,144 @@
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+
+/**
+ * Canonical JSON output, in the style of RFC 8785: no whitespace, object
+ * members sorted by key, numbers in normalized form, and minimal string
+ * escaping (as in JSONString).  Two values that mean the same thing
+ * produce the same text, regardless of the bucket order inside JSONHash.
+ *
+ * Unlike RFC 8785, numbers keep their full precision instead of being
+ * rounded to doubles; they are laid out with the same rules as
+ * ECMAScript's Number.prototype.toString.
+ */
+public class JSONCanonical {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * Integers below this magnitude print the same as toString.
+   */
+  static final BigInteger LIMIT = BigInteger.TEN.pow(21);
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Convert a value to its canonical text.
+   */
+  public static String toString(JSONValue value) {
+    StringBuilder result = new StringBuilder();
+    append(result, value);
+    return result.toString();
+  } // toString(JSONValue)
+
+  /**
+   * Write a value as canonical JSON.
+   */
+  public static void writeJSON(JSONValue value, PrintWriter pen) {
+    pen.print(toString(value));
+  } // writeJSON(JSONValue, PrintWriter)
+
+  /**
+   * Convert a number to its canonical text.  Integers and reals with the
+   * same value (e.g., 1 and 1.0) produce the same text.
+   */
+  public static String number(BigDecimal value) {
+    BigDecimal stripped = value.stripTrailingZeros();
+    if (stripped.signum() == 0) {
+      return "0";
+    } // if
+    String digits = stripped.unscaledValue().abs().toString();
+    int k = digits.length();
+    // The decimal point goes n digits from the left of digits.
+    int n = k - stripped.scale();
+    StringBuilder result = new StringBuilder();
+    if (stripped.signum() < 0) {
+      result.append('-');
+    } // if
+    if ((k <= n) && (n <= 21)) {
+      result.append(digits);
+      for (int i = k; i < n; i++) {
+        result.append('0');
+      } // for
+    } else if ((0 < n) && (n <= 21)) {
+      result.append(digits, 0, n).append('.').append(digits, n, k);
+    } else if ((-6 < n) && (n <= 0)) {
+      result.append("0.");
+      for (int i = n; i < 0; i++) {
+        result.append('0');
+      } // for
+      result.append(digits);
+    } else {
+      result.append(digits.charAt(0));
+      if (k > 1) {
+        result.append('.').append(digits, 1, k);
+      } // if
+      result.append('e').append((n - 1 < 0) ? '-' : '+').append(Math.abs(n - 1));
+    } // if/else
+    return result.toString();
+  } // number(BigDecimal)
+
+  /**
+   * Convert an integer to its canonical text.
+   */
+  public static String number(BigInteger value) {
+    if (value.bitLength() < 64 && value.abs().compareTo(LIMIT) < 0) {
+      return value.toString();
+    } // if
+    return number(new BigDecimal(value));
+  } // number(BigInteger)
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Append the canonical text of a value.
+   */
+  static void append(StringBuilder result, JSONValue value) {
+    if (value instanceof JSONString) {
+      JSONString.appendQuoted(result, ((JSONString) value).getValue());
+    } else if (value instanceof JSONInteger) {
+      result.append(number(((JSONInteger) value).getValue()));
+    } else if (value instanceof JSONReal) {
+      result.append(number(((JSONReal) value).getValue()));
+    } else if (value instanceof JSONArray) {
+      JSONArray array = (JSONArray) value;
+      result.append('[');
+      for (int i = 0; i < array.size(); i++) {
+        if (i > 0) {
+          result.append(',');
+        } // if
+        append(result, array.get(i));
+      } // for
+      result.append(']');
+    } else if (value instanceof JSONHash) {
+      JSONHash hash = (JSONHash) value;
+      ArrayList<KVPair<JSONString, JSONValue>> pairs = new ArrayList<>(hash.size());
+      for (KVPair<JSONString, JSONValue> pair : hash) {
+        pairs.add(pair);
+      } // for
+      // String.compareTo orders by UTF-16 code unit, as RFC 8785 requires.
+      pairs.sort((x, y) -> x.key().getValue().compareTo(y.key().getValue()));
+      result.append('{');
+      for (int i = 0; i < pairs.size(); i++) {
+        if (i > 0) {
+          result.append(',');
+        } // if
+        JSONString.appendQuoted(result, pairs.get(i).key().getValue());
+        result.append(':');
+        append(result, pairs.get(i).value());
+      } // for
+      result.append('}');
+    } else {
+      result.append(value.toString());
+    } // if/else
+  } // append(StringBuilder, JSONValue)
+
+} // class JSONCanonical
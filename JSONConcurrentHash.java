@@ -0,0 +1,165 @@
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A JSON hash/object that many threads may read and update at once,
+ * e.g., a live, shared configuration document.  It is a JSONHash, so it
+ * can be used anywhere one is (writing, patching, fingerprinting, ...).
+ *
+ * Reads take no locks.  Writes update one bin at a time, with a CAS or
+ * a lock on that bin only, so readers never wait and writers contend
+ * only when their keys collide.  Iteration (and so toString, equals,
+ * and writeJSON) is weakly consistent: it never fails, sees each pair at
+ * most once, and may or may not see updates made while it runs.
+ *
+ * Only this hash is concurrent; values stored in it, such as nested
+ * hashes and arrays, should be treated as immutable or be concurrent
+ * themselves.
+ *
+ * The underlying map cannot hold null, so a null value (which JSONHash
+ * accepts) is stored as JSONConstant.NULL, and get returns that rather
+ * than null.  Both write the same JSON.
+ */
+public class JSONConcurrentHash extends JSONHash {
+
+    // +--------+------------------------------------------------------
+    // | Fields |
+    // +--------+
+
+    private final ConcurrentHashMap<JSONString, JSONValue> map;
+
+    // +--------------+------------------------------------------------
+    // | Constructors |
+    // +--------------+
+
+    public JSONConcurrentHash() {
+        super(false);
+        map = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Constructs a concurrent hash holding the same pairs as source (the
+     * values themselves are shared, not copied).
+     */
+    public JSONConcurrentHash(JSONHash source) {
+        super(false);
+        map = new ConcurrentHashMap<>(Math.max(16, source.size() * 2));
+        for (KVPair<JSONString, JSONValue> pair : source) {
+            map.put(pair.key(), orNull(pair.value()));
+        }
+    }
+
+    // +-------------------+-------------------------------------------
+    // | Hashtable methods |
+    // +-------------------+
+
+    /**
+     * Get the value associated with a key, without locking.
+     */
+    @Override
+    public JSONValue get(JSONString key) {
+        return map.get(key);
+    }
+
+    /**
+     * Set the value associated with a key, replacing any existing value.
+     * A null value is stored as JSONConstant.NULL.
+     */
+    @Override
+    public void set(JSONString key, JSONValue value) {
+        map.put(key, orNull(value));
+    }
+
+    /**
+     * Remove the value associated with a key, returning it (or null if the key is absent).
+     */
+    @Override
+    public JSONValue remove(JSONString key) {
+        return map.remove(key);
+    }
+
+    /**
+     * Get all of the key/value pairs, weakly consistently.
+     */
+    @Override
+    public Iterator<KVPair<JSONString, JSONValue>> iterator() {
+        Iterator<Map.Entry<JSONString, JSONValue>> entries = map.entrySet().iterator();
+        return new Iterator<KVPair<JSONString, JSONValue>>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public KVPair<JSONString, JSONValue> next() {
+                Map.Entry<JSONString, JSONValue> entry = entries.next();
+                return new KVPair<>(entry.getKey(), entry.getValue());
+            }
+        };
+    }
+
+    /**
+     * Find out how many key/value pairs are in the hash table.  While other
+     * threads are updating it, this is only an estimate.
+     */
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    // +-------------------+-------------------------------------------
+    // | Atomic operations |
+    // +-------------------+
+
+    /**
+     * Set the value associated with a key unless it already has one.
+     * Returns the existing value, or null if value was stored.
+     */
+    public JSONValue putIfAbsent(JSONString key, JSONValue value) {
+        return map.putIfAbsent(key, orNull(value));
+    }
+
+    /**
+     * Replace the value associated with a key only if it is still expected
+     * (compared with equals).  Returns whether it was replaced.
+     */
+    public boolean replace(JSONString key, JSONValue expected, JSONValue value) {
+        return map.replace(key, orNull(expected), orNull(value));
+    }
+
+    /**
+     * Atomically recompute the value associated with a key from its
+     * current value (null if absent).  If the function returns null, the
+     * key is removed.  Returns the new value.  The function may be
+     * called while other updates to nearby keys wait, so it should be
+     * short and must not update this hash.
+     */
+    public JSONValue compute(JSONString key,
+            BiFunction<? super JSONString, ? super JSONValue, ? extends JSONValue> function) {
+        return map.compute(key, function);
+    }
+
+    /**
+     * Get the value associated with a key, first computing and storing it
+     * atomically if there is none.  The function is called at most once
+     * per absent key.
+     */
+    public JSONValue computeIfAbsent(JSONString key, Function<? super JSONString, ? extends JSONValue> function) {
+        return map.computeIfAbsent(key, function);
+    }
+
+    // +----------------+----------------------------------------------
+    // | Helper methods |
+    // +----------------+
+
+    /**
+     * The value to store for value: itself, or JSONConstant.NULL for null.
+     */
+    private static JSONValue orNull(JSONValue value) {
+        return (value == null) ? JSONConstant.NULL : value;
+    }
+
+} // class JSONConcurrentHash
@@ -0,0 +1,190 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * 64-bit content fingerprints of JSON values.
+ *
+ * Two values have the same fingerprint whenever they have the same
+ * canonical form (see JSONCanonical): object members are combined
+ * order-independently, and numbers are hashed by value, so 1 and 1.0
+ * agree.  Fingerprints are meant for deduplication, not security; they
+ * are not cryptographic hashes.
+ *
+ * Every fingerprint folds in a tag for the kind of value through a
+ * function that cannot be solved for its input (see tagged), so a
+ * string, a number, an array, and an object never agree by
+ * construction; two different values collide only by chance, with
+ * probability about 2^-64 per pair.
+ *
+ * The parser can compute the fingerprint while it reads the input (see
+ * JSON.parseWithFingerprint), using the same building blocks as of().
+ */
+public class JSONFingerprint {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  static final long STRING = 0x2f3a8c1e5b7d9046L;
+  static final long NUMBER = 0x71c4e9a05d3b2f68L;
+  static final long ARRAY = 0x4e8a16f2c90b7d35L;
+  static final long OBJECT = 0x93d05b7e1a4c6f28L;
+  static final long TRUE = 0x6a09e667f3bcc908L;
+  static final long FALSE = 0xbb67ae8584caa73bL;
+  static final long NULL = 0x3c6ef372fe94f82bL;
+  static final long BIG_NUMBER = 0xa54ff53a5f1d36f1L;
+
+  /**
+   * Numbers smaller than this in magnitude are hashed as longs.
+   */
+  static final long SMALL = 1_000_000_000_000_000_000L;
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Compute the fingerprint of a value by walking it.
+   */
+  public static long of(JSONValue value) {
+    if (value instanceof JSONString) {
+      return string(((JSONString) value).getValue());
+    } else if (value instanceof JSONInteger) {
+      return integer(((JSONInteger) value).getValue());
+    } else if (value instanceof JSONReal) {
+      return real(((JSONReal) value).getValue());
+    } else if (value instanceof JSONArray) {
+      long hash = ARRAY;
+      for (JSONValue element : ((JSONArray) value).getValue()) {
+        hash = element(hash, of(element));
+      } // for
+      return array(hash);
+    } else if (value instanceof JSONHash) {
+      long hash = 0;
+      int size = 0;
+      for (KVPair<JSONString, JSONValue> pair : (JSONHash) value) {
+        hash = member(hash, string(pair.key().getValue()), of(pair.value()));
+        size++;
+      } // for
+      return object(hash, size);
+    } else {
+      return constant(value);
+    } // if/else
+  } // of(JSONValue)
+
+  // +-----------------+---------------------------------------------
+  // | Building blocks |
+  // +-----------------+
+
+  /**
+   * The fingerprint of a string.
+   */
+  static long string(String str) {
+    return tagged(STRING, chars(str));
+  } // string(String)
+
+  /**
+   * The fingerprint of an integer.
+   */
+  static long integer(BigInteger value) {
+    // 2^59 < SMALL, so real() would take its fast path for these too.
+    if (value.bitLength() < 60) {
+      return tagged(NUMBER, value.longValue());
+    } // if
+    return real(new BigDecimal(value));
+  } // integer(BigInteger)
+
+  /**
+   * The fingerprint of a real.
+   */
+  static long real(BigDecimal value) {
+    BigDecimal stripped = value.stripTrailingZeros();
+    // In long, since a huge exponent (1e2147483647) overflows the digit
+    // count in int.
+    if ((stripped.scale() <= 0) && ((long) stripped.precision() - stripped.scale() <= 18)) {
+      long l = stripped.longValueExact();
+      if (Math.abs(l) < SMALL) {
+        return tagged(NUMBER, l);
+      } // if
+    } // if
+    return tagged(BIG_NUMBER, mix(chars(stripped.unscaledValue().toString())) + stripped.scale());
+  } // real(BigDecimal)
+
+  /**
+   * The fingerprint of true, false, or null.
+   */
+  static long constant(JSONValue value) {
+    if (JSONConstant.TRUE.equals(value)) {
+      return TRUE;
+    } else if (JSONConstant.FALSE.equals(value)) {
+      return FALSE;
+    } else {
+      return NULL;
+    } // if/else
+  } // constant(JSONValue)
+
+  /**
+   * Fold the next element into an array fingerprint that started at ARRAY.
+   */
+  static long element(long hash, long element) {
+    return mix(hash ^ element) + 0x9e3779b97f4a7c15L;
+  } // element(long, long)
+
+  /**
+   * Finish an array fingerprint.
+   */
+  static long array(long hash) {
+    return tagged(ARRAY, hash);
+  } // array(long)
+
+  /**
+   * Add a member into an object fingerprint that started at 0.  Members
+   * are summed, so their order does not matter.
+   */
+  static long member(long hash, long key, long value) {
+    return hash + mix(key * 0x9e3779b97f4a7c15L + value);
+  } // member(long, long, long)
+
+  /**
+   * Finish an object fingerprint.
+   */
+  static long object(long hash, int size) {
+    return tagged(OBJECT, hash + mix(size));
+  } // object(long, int)
+
+  /**
+   * Combine a type tag with a payload.  XORing the tag in before a single
+   * mix would let anyone pick a payload of one type that lands on a given
+   * fingerprint of another, since mix can be inverted.  Here the payload
+   * goes through two different bijections that both depend on the tag,
+   * and their sum is mixed; the sum has no known inverse, so such a
+   * payload can only be found by search.
+   */
+  static long tagged(long tag, long payload) {
+    long a = mix(payload ^ tag);
+    long b = mix(Long.rotateLeft(payload, 29) * 0x9e3779b97f4a7c15L + mix(tag));
+    return mix(a + b);
+  } // tagged(long, long)
+
+  /**
+   * An untagged 64-bit hash of the characters of a string (FNV-1a,
+   * followed by the length).
+   */
+  static long chars(String str) {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < str.length(); i++) {
+      hash = (hash ^ str.charAt(i)) * 0x100000001b3L;
+    } // for
+    return mix(hash + str.length());
+  } // chars(String)
+
+  /**
+   * Scramble the bits of a 64-bit value (the MurmurHash3 finalizer).
+   */
+  static long mix(long hash) {
+    hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+    hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return hash ^ (hash >>> 33);
+  } // mix(long)
+
+} // class JSONFingerprint
@@ -0,0 +1,424 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Writes JSON straight to an output as a sequence of calls, without
+ * building a tree first.  For example,
+ *
+ *   gen.startObject().name("id").value(17).name("tags").startArray()
+ *      .value("a").value("b").endArray().endObject();
+ *
+ * writes {"id":17,"tags":["a","b"]}.  Commas, colons, and escapes are
+ * supplied as needed, and each call is checked against the nesting so
+ * far, so that misuse (a value where a name belongs, endArray inside an
+ * object, a second top-level value) throws an IllegalStateException
+ * rather than writing broken JSON.  Output is compact and is buffered
+ * in fixed-size arrays, so memory use does not grow with the document.
+ * Given a stream, the generator encodes straight to UTF-8 bytes with a
+ * JSONUtf8Writer of its own rather than going through a char encoder.
+ */
+public class JSONGenerator implements Closeable, Flushable {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * What each open container expects next.
+   */
+  static final byte EMPTY_ARRAY = 0;
+  static final byte ARRAY = 1;  // After an element, so a comma comes first
+  static final byte EMPTY_OBJECT = 2;
+  static final byte OBJECT = 3;  // After a member
+  static final byte NAME = 4;  // After a name, so a value comes next
+
+  static final int BUFFER_SIZE = 8192;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Where the JSON goes when writing chars, or null when writing bytes.
+   */
+  final Writer out;
+
+  /**
+   * Characters not yet passed to out.
+   */
+  final char[] buf;
+  int pos;
+
+  /**
+   * The encoder (and through it, the stream) when writing bytes, or null
+   * when writing chars.
+   */
+  final JSONUtf8Writer utf8;
+
+  /**
+   * The state of each open container.
+   */
+  byte[] states;
+  int depth;
+
+  /**
+   * Whether the top-level value has been started.
+   */
+  boolean started;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Write to a writer.
+   */
+  public JSONGenerator(Writer out) {
+    this.out = out;
+    this.buf = new char[BUFFER_SIZE];
+    this.utf8 = null;
+    this.states = new byte[16];
+  } // JSONGenerator(Writer)
+
+  /**
+   * Write UTF-8 to a stream.
+   */
+  public JSONGenerator(OutputStream out) {
+    this.out = null;
+    this.buf = null;
+    this.utf8 = new JSONUtf8Writer();
+    this.utf8.stream = out;
+    this.states = new byte[16];
+  } // JSONGenerator(OutputStream)
+
+  // +-----------+---------------------------------------------------
+  // | Structure |
+  // +-----------+
+
+  public JSONGenerator startObject() throws IOException {
+    beforeValue();
+    push(EMPTY_OBJECT);
+    put('{');
+    return this;
+  } // startObject()
+
+  public JSONGenerator endObject() throws IOException {
+    if ((this.depth == 0) || (this.states[this.depth - 1] < EMPTY_OBJECT)) {
+      throw new IllegalStateException("endObject outside an object");
+    } else if (this.states[this.depth - 1] == NAME) {
+      throw new IllegalStateException("endObject after a name with no value");
+    } // if/else
+    this.depth--;
+    put('}');
+    return this;
+  } // endObject()
+
+  public JSONGenerator startArray() throws IOException {
+    beforeValue();
+    push(EMPTY_ARRAY);
+    put('[');
+    return this;
+  } // startArray()
+
+  public JSONGenerator endArray() throws IOException {
+    if ((this.depth == 0) || (this.states[this.depth - 1] > ARRAY)) {
+      throw new IllegalStateException("endArray outside an array");
+    } // if
+    this.depth--;
+    put(']');
+    return this;
+  } // endArray()
+
+  /**
+   * Write the name of the next object member.
+   */
+  public JSONGenerator name(CharSequence name) throws IOException {
+    if (this.depth == 0) {
+      throw new IllegalStateException("name outside an object");
+    } // if
+    switch (this.states[this.depth - 1]) {
+      case OBJECT:
+        put(',');
+        break;
+      case EMPTY_OBJECT:
+        break;
+      case NAME:
+        throw new IllegalStateException("name after a name with no value");
+      default:
+        throw new IllegalStateException("name outside an object");
+    } // switch
+    this.states[this.depth - 1] = NAME;
+    quoted(name);
+    put(':');
+    return this;
+  } // name(CharSequence)
+
+  // +--------+------------------------------------------------------
+  // | Values |
+  // +--------+
+
+  public JSONGenerator value(long l) throws IOException {
+    beforeValue();
+    if (this.utf8 != null) {
+      this.utf8.number(l);
+    } else {
+      raw(Long.toString(l));
+    } // if/else
+    return this;
+  } // value(long)
+
+  /**
+   * Write a double.  Throws an IllegalArgumentException for NaN and the
+   * infinities, which JSON cannot represent.
+   */
+  public JSONGenerator value(double d) throws IOException {
+    if (Double.isNaN(d) || Double.isInfinite(d)) {
+      throw new IllegalArgumentException("JSON has no " + d);
+    } // if
+    beforeValue();
+    raw(Double.toString(d));
+    return this;
+  } // value(double)
+
+  public JSONGenerator value(BigInteger i) throws IOException {
+    if (i == null) {
+      return nullValue();
+    } // if
+    beforeValue();
+    raw(i.toString());
+    return this;
+  } // value(BigInteger)
+
+  public JSONGenerator value(BigDecimal d) throws IOException {
+    if (d == null) {
+      return nullValue();
+    } // if
+    beforeValue();
+    raw(d.toString());
+    return this;
+  } // value(BigDecimal)
+
+  public JSONGenerator value(boolean b) throws IOException {
+    beforeValue();
+    raw(b ? "true" : "false");
+    return this;
+  } // value(boolean)
+
+  /**
+   * Write a string, or null if str is null.
+   */
+  public JSONGenerator value(CharSequence str) throws IOException {
+    if (str == null) {
+      return nullValue();
+    } // if
+    beforeValue();
+    quoted(str);
+    return this;
+  } // value(CharSequence)
+
+  public JSONGenerator nullValue() throws IOException {
+    beforeValue();
+    raw("null");
+    return this;
+  } // nullValue()
+
+  /**
+   * Write an existing value, and everything in it, in place.
+   */
+  public JSONGenerator value(JSONValue value) throws IOException {
+    if (value == null) {
+      return nullValue();
+    } else if (value instanceof JSONString) {
+      return value(((JSONString) value).getValue());
+    } else if (value instanceof JSONInteger) {
+      BigInteger i = ((JSONInteger) value).getValue();
+      return (i.bitLength() < 64) ? value(i.longValue()) : value(i);
+    } else if (value instanceof JSONReal) {
+      return value(((JSONReal) value).getValue());
+    } else if (value instanceof JSONArray) {
+      JSONArray array = (JSONArray) value;
+      startArray();
+      for (int i = 0; i < array.size(); i++) {
+        value(array.get(i));
+      } // for
+      return endArray();
+    } else if (value instanceof JSONHash) {
+      startObject();
+      for (KVPair<JSONString, JSONValue> pair : (JSONHash) value) {
+        name(pair.key().getValue());
+        value(pair.value());
+      } // for
+      return endObject();
+    } // if/else
+    beforeValue();
+    raw(value.toString());
+    return this;
+  } // value(JSONValue)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Determine whether a complete top-level value has been written.
+   */
+  public boolean isComplete() {
+    return this.started && (this.depth == 0);
+  } // isComplete()
+
+  /**
+   * Pass everything written so far to the output, and flush it.
+   */
+  public void flush() throws IOException {
+    drain();
+    if (this.utf8 != null) {
+      this.utf8.stream.flush();
+    } else {
+      this.out.flush();
+    } // if/else
+  } // flush()
+
+  /**
+   * Flush and close the output.  Throws an IllegalStateException (after
+   * closing) if the top-level value is incomplete.
+   */
+  public void close() throws IOException {
+    drain();
+    if (this.utf8 != null) {
+      this.utf8.stream.close();
+    } else {
+      this.out.close();
+    } // if/else
+    if (!isComplete()) {
+      throw new IllegalStateException("Closed with an incomplete value");
+    } // if
+  } // close()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Check that a value may come next and write the comma before it, if
+   * any.
+   */
+  void beforeValue() throws IOException {
+    if (this.depth == 0) {
+      if (this.started) {
+        throw new IllegalStateException("More than one top-level value");
+      } // if
+      this.started = true;
+      return;
+    } // if
+    switch (this.states[this.depth - 1]) {
+      case EMPTY_ARRAY:
+        this.states[this.depth - 1] = ARRAY;
+        break;
+      case ARRAY:
+        put(',');
+        break;
+      case NAME:
+        this.states[this.depth - 1] = OBJECT;
+        break;
+      default:
+        throw new IllegalStateException("Value in an object without a name");
+    } // switch
+  } // beforeValue()
+
+  /**
+   * Open a container.
+   */
+  void push(byte state) {
+    if (this.depth == this.states.length) {
+      this.states = Arrays.copyOf(this.states, this.depth * 2);
+    } // if
+    this.states[this.depth++] = state;
+  } // push(byte)
+
+  /**
+   * Write a quoted, escaped string.  The runs between escapes are copied
+   * in bulk.
+   */
+  void quoted(CharSequence str) throws IOException {
+    if (this.utf8 != null) {
+      this.utf8.string(str.toString());
+      return;
+    } // if
+    put('"');
+    int n = str.length();
+    int start = 0;
+    for (int i = JSONString.nextEscape(str, 0, n); i < n; i = JSONString.nextEscape(str, start, n)) {
+      raw(str, start, i);
+      raw(JSONString.escape(str.charAt(i)));
+      start = i + 1;
+    } // for
+    raw(str, start, n);
+    put('"');
+  } // quoted(CharSequence)
+
+  /**
+   * Write characters as they are.
+   */
+  void raw(CharSequence str) throws IOException {
+    if (this.utf8 != null) {
+      this.utf8.ascii(str.toString());
+    } else {
+      raw(str, 0, str.length());
+    } // if/else
+  } // raw(CharSequence)
+
+  /**
+   * Write the characters of str from start to end as they are, when
+   * writing chars.
+   */
+  void raw(CharSequence str, int start, int end) throws IOException {
+    while (start < end) {
+      if (this.pos == BUFFER_SIZE) {
+        drain();
+      } // if
+      int n = Math.min(end - start, BUFFER_SIZE - this.pos);
+      if (str instanceof String) {
+        ((String) str).getChars(start, start + n, this.buf, this.pos);
+        this.pos += n;
+        start += n;
+      } else {
+        for (int stop = start + n; start < stop; start++) {
+          this.buf[this.pos++] = str.charAt(start);
+        } // for
+      } // if/else
+    } // while
+  } // raw(CharSequence, int, int)
+
+  /**
+   * Write one character.
+   */
+  void put(char ch) throws IOException {
+    if (this.utf8 != null) {
+      this.utf8.put(ch);
+      return;
+    } // if
+    if (this.pos == BUFFER_SIZE) {
+      drain();
+    } // if
+    this.buf[this.pos++] = ch;
+  } // put(char)
+
+  /**
+   * Pass the buffer to the output.
+   */
+  void drain() throws IOException {
+    if (this.utf8 != null) {
+      this.utf8.flush();
+    } else {
+      this.out.write(this.buf, 0, this.pos);
+      this.pos = 0;
+    } // if/else
+  } // drain()
+
+} // class JSONGenerator
@@ -0,0 +1,44 @@
+import java.text.ParseException;
+
+/**
+ * Receives the events of a streaming parse, in document order.  A handler
+ * may throw a ParseException to stop the parse; if it gives a negative
+ * error offset, the parser fills in the current position.
+ */
+public interface JSONHandler {
+
+  // +--------+------------------------------------------------------
+  // | Events |
+  // +--------+
+
+  /**
+   * An object begins.
+   */
+  public void startObject() throws ParseException;
+
+  /**
+   * The next member of the current object has this key.
+   */
+  public void key(JSONString key) throws ParseException;
+
+  /**
+   * The current object ends.
+   */
+  public void endObject() throws ParseException;
+
+  /**
+   * An array begins.
+   */
+  public void startArray() throws ParseException;
+
+  /**
+   * The current array ends.
+   */
+  public void endArray() throws ParseException;
+
+  /**
+   * A scalar: a JSONString, JSONInteger, JSONReal, or JSONConstant.
+   */
+  public void value(JSONValue value) throws ParseException;
+
+} // interface JSONHandler
@@ -18,11 +18,24 @@ public class JSONHash implements JSONValue, Iterable<KVPair<JSONString, JSONValu
     // | Constructors |
     // +--------------+
 
-    @SuppressWarnings("unchecked")
     public JSONHash() {
-        table = (ArrayList<KVPair<JSONString, JSONValue>>[]) new ArrayList[10];  // initial capacity
-        for (int i = 0; i < table.length; i++) {
-            table[i] = new ArrayList<>();
+        this(true);
+    }
+
+    /**
+     * Constructs a hash, with or without a table of its own.  A subclass
+     * that keeps its pairs elsewhere passes false, and must then override
+     * every method that reads the table (get, set, remove, iterator, and
+     * size); any it misses fails with a NullPointerException rather than
+     * quietly acting as an empty hash.
+     */
+    @SuppressWarnings("unchecked")
+    JSONHash(boolean withTable) {
+        if (withTable) {
+            table = (ArrayList<KVPair<JSONString, JSONValue>>[]) new ArrayList[10];  // initial capacity
+            for (int i = 0; i < table.length; i++) {
+                table[i] = new ArrayList<>();
+            }
         }
         size = 0;
     }
@@ -40,7 +53,7 @@ public class JSONHash implements JSONValue, Iterable<KVPair<JSONString, JSONValu
         Iterator<KVPair<JSONString, JSONValue>> it = this.iterator();
         while (it.hasNext()) {
             KVPair<JSONString, JSONValue> pair = it.next();
-            sb.append(pair.toString());
+            sb.append(pair.key()).append(": ").append(pair.value());
             if (it.hasNext()) {
                 sb.append(", ");
             }
@@ -132,6 +145,20 @@ public class JSONHash implements JSONValue, Iterable<KVPair<JSONString, JSONValu
         size++;
     }
 
+    /**
+     * Remove the value associated with a key, returning it (or null if the key is absent).
+     */
+    public JSONValue remove(JSONString key) {
+        int index = hash(key);
+        for (int i = 0; i < table[index].size(); i++) {
+            if (table[index].get(i).key().equals(key)) {
+                size--;
+                return table[index].remove(i).value();
+            }
+        }
+        return null;
+    }
+
     /**
      * Get all of the key/value pairs.
      */
@@ -0,0 +1,286 @@
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Inflates gzip or zlib input on a thread of its own, handing the bytes
+ * to the reading thread through a small ring of buffers, so that
+ * decompression and parsing overlap.
+ *
+ * The ring is two bounded queues: empty buffers go from the reader to
+ * the inflater, and full ones come back.  The inflater therefore never
+ * gets more than RING buffers ahead of the parser.
+ */
+class JSONInflater extends InputStream implements Runnable {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The size of each buffer.
+   */
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * The number of buffers in the ring.
+   */
+  static final int RING = 4;
+
+  /**
+   * Marks the end of the inflated bytes.
+   */
+  static final Chunk END = new Chunk(0);
+
+  /**
+   * How long close waits for the inflater thread, in milliseconds.  A
+   * thread blocked reading the source (e.g., a socket) ignores the
+   * interrupt, so it is left to finish on its own.
+   */
+  static final long CLOSE_WAIT = 100;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The decompressing stream, read and closed only by the inflater
+   * thread.
+   */
+  final InputStream source;
+
+  /**
+   * Buffers ready to be filled, and buffers ready to be read.
+   */
+  final BlockingQueue<Chunk> empty;
+  final BlockingQueue<Chunk> full;
+
+  /**
+   * The thread that inflates.
+   */
+  final Thread thread;
+
+  /**
+   * What the inflater failed with, if anything; read after END.
+   */
+  volatile IOException failure;
+
+  /**
+   * Whether the reader has closed this stream.
+   */
+  boolean closed;
+
+  /**
+   * The buffer being read, and the next byte to read in it.
+   */
+  Chunk current;
+  int pos;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Start inflating source on a new thread.
+   */
+  JSONInflater(InputStream source) {
+    this.source = source;
+    this.empty = new ArrayBlockingQueue<>(RING);
+    this.full = new ArrayBlockingQueue<>(RING + 1);
+    for (int i = 0; i < RING; i++) {
+      this.empty.add(new Chunk(CHUNK_SIZE));
+    } // for
+    this.thread = new Thread(this, "json-inflater");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  } // JSONInflater(InputStream)
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Get a stream of the bytes of in, inflated on another thread if they
+   * start with a gzip or zlib header.  Raw deflate data has no header,
+   * and so is not recognized.  Closing the result stops the inflater
+   * thread (if any) and releases what open made, but never closes in.
+   */
+  static InputStream open(InputStream in) throws IOException {
+    BufferedInputStream buffered = new BufferedInputStream(new Shield(in), CHUNK_SIZE);
+    buffered.mark(2);
+    int b0 = buffered.read();
+    int b1 = buffered.read();
+    buffered.reset();
+    // Neither header can begin a JSON text: gzip starts with a control
+    // character, and zlib with 'x' (deflate with the usual 32K window;
+    // other window sizes would clash with digits, so are not accepted).
+    if (b0 == 0x1f && b1 == 0x8b) {
+      return new JSONInflater(new GZIPInputStream(buffered, CHUNK_SIZE));
+    } else if (b0 == 0x78 && b1 >= 0 && ((b0 << 8) | b1) % 31 == 0) {
+      return new JSONInflater(new InflaterInputStream(buffered));
+    } // if/else
+    return buffered;
+  } // open(InputStream)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Inflate into empty buffers until the input runs out.  However that
+   * happens (the end, a failure, or close), END is the last thing sent,
+   * so the reader never waits forever.
+   */
+  @Override
+  public void run() {
+    try {
+      while (true) {
+        Chunk chunk = this.empty.take();
+        int n = 0;
+        while (n < chunk.data.length) {
+          int got = this.source.read(chunk.data, n, chunk.data.length - n);
+          if (got < 0) {
+            break;
+          } // if
+          n += got;
+        } // while
+        if (n > 0) {
+          chunk.length = n;
+          this.full.put(chunk);
+        } // if
+        if (n < chunk.data.length) {
+          break;
+        } // if
+      } // while
+    } catch (InterruptedException e) {
+      // The reader closed us, so it should not read on.
+      this.failure = new InterruptedIOException("Inflater closed");
+    } catch (IOException e) {
+      this.failure = e;
+    } catch (Throwable e) {
+      this.failure = new IOException("Inflater failed", e);
+    } finally {
+      try {
+        this.source.close();
+      } catch (Throwable e) {
+        // Nothing more is read, so the failure does not matter.
+      } // try/catch
+      // There is always room: the ring holds only RING buffers.
+      this.full.offer(END);
+    } // try/catch/finally
+  } // run()
+
+  @Override
+  public int read() throws IOException {
+    if (!next()) {
+      return -1;
+    } // if
+    return this.current.data[this.pos++] & 0xff;
+  } // read()
+
+  @Override
+  public int read(byte[] buf, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    } // if
+    if (!next()) {
+      return -1;
+    } // if
+    int n = Math.min(len, this.current.length - this.pos);
+    System.arraycopy(this.current.data, this.pos, buf, off, n);
+    this.pos += n;
+    return n;
+  } // read(byte[], int, int)
+
+  @Override
+  public int available() {
+    return (this.current == null || this.current == END) ? 0 : this.current.length - this.pos;
+  } // available()
+
+  /**
+   * Stop the inflater thread, waiting for it at most CLOSE_WAIT
+   * milliseconds.  The underlying stream is left open.
+   */
+  @Override
+  public void close() throws IOException {
+    this.closed = true;
+    this.thread.interrupt();
+    try {
+      this.thread.join(CLOSE_WAIT);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } // try/catch
+  } // close()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Make sure current has a byte to read, returning false at the end.
+   */
+  boolean next() throws IOException {
+    if (this.closed) {
+      throw new IOException("Stream closed");
+    } else if (this.current == END) {
+      return false;
+    } // if/else
+    if (this.current != null && this.pos < this.current.length) {
+      return true;
+    } // if
+    if (this.current != null) {
+      this.empty.add(this.current);
+    } // if
+    try {
+      this.current = this.full.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } // try/catch
+    this.pos = 0;
+    if (this.current == END) {
+      if (this.failure != null) {
+        throw this.failure;
+      } // if
+      return false;
+    } // if
+    return true;
+  } // next()
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * Passes everything to a stream except close, so that closing what
+   * open builds on it leaves the caller's stream open.
+   */
+  static class Shield extends FilterInputStream {
+    Shield(InputStream in) {
+      super(in);
+    } // Shield(InputStream)
+
+    @Override
+    public void close() {
+    } // close()
+  } // class Shield
+
+  /**
+   * One buffer of the ring.
+   */
+  static class Chunk {
+    final byte[] data;
+    int length;
+
+    Chunk(int size) {
+      this.data = new byte[size];
+    } // Chunk(int)
+  } // class Chunk
+
+} // class JSONInflater
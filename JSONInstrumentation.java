@@ -0,0 +1,237 @@
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * The measured versions of JSON.parse and JSON.write, used only while a
+ * listener is installed or a flight recording wants our events.
+ */
+class JSONInstrumentation {
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Determine whether a flight recording wants parse events.
+   */
+  static boolean parseEventsEnabled() {
+    return new JSONParseEvent().isEnabled();
+  } // parseEventsEnabled()
+
+  /**
+   * Determine whether a flight recording wants write events.
+   */
+  static boolean writeEventsEnabled() {
+    return new JSONWriteEvent().isEnabled();
+  } // writeEventsEnabled()
+
+  /**
+   * Parse, reporting measurements to listener (which may be null) and to
+   * the flight recorder.
+   */
+  static void parse(Reader source, JSONHandler handler, JSONLimits limits,
+      JSONProjection projection, JSONListener listener)
+      throws ParseException, IOException {
+    JSONParseEvent event = new JSONParseEvent();
+    event.begin();
+    CountingReader input = new CountingReader(source);
+    Counter counter = new Counter(handler);
+    long start = System.nanoTime();
+    try {
+      new JSONParser(input, counter, limits, projection).parse();
+    } catch (ParseException | IOException | RuntimeException e) {
+      if (listener != null) {
+        listener.parseFailed(e);
+      } // if
+      event.failed = true;
+      throw e;
+    } finally {
+      long nanos = System.nanoTime() - start;
+      if (listener != null && !event.failed) {
+        listener.parsed(input.count, counter.tokens, counter.maxDepth, counter.maxWidth, nanos);
+      } // if
+      event.end();
+      if (event.shouldCommit()) {
+        event.chars = input.count;
+        event.tokens = counter.tokens;
+        event.maxDepth = counter.maxDepth;
+        event.maxWidth = counter.maxWidth;
+        event.commit();
+      } // if
+    } // try/catch/finally
+  } // parse(Reader, JSONHandler, JSONLimits, JSONProjection, JSONListener)
+
+  /**
+   * Write, reporting measurements to listener (which may be null) and to
+   * the flight recorder.
+   */
+  static void write(JSONValue value, PrintWriter pen, JSONListener listener) {
+    JSONWriteEvent event = new JSONWriteEvent();
+    event.begin();
+    CountingWriter output = new CountingWriter(pen);
+    PrintWriter counted = new PrintWriter(output);
+    long start = System.nanoTime();
+    value.writeJSON(counted);
+    counted.flush();
+    long nanos = System.nanoTime() - start;
+    event.failed = counted.checkError() || pen.checkError();
+    if (listener != null) {
+      if (event.failed) {
+        listener.writeFailed();
+      } else {
+        listener.written(output.count, nanos);
+      } // if/else
+    } // if
+    event.end();
+    if (event.shouldCommit()) {
+      event.chars = output.count;
+      event.commit();
+    } // if
+  } // write(JSONValue, PrintWriter, JSONListener)
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * Counts the tokens, depth, and object widths of a parse on their way
+   * to another handler.
+   */
+  static class Counter implements JSONHandler {
+    JSONHandler next;
+    long tokens;
+    int depth;
+    int maxDepth;
+    int maxWidth;
+
+    /**
+     * The number of members so far in each open container (unused for
+     * arrays).
+     */
+    int[] widths = new int[16];
+
+    Counter(JSONHandler next) {
+      this.next = next;
+    } // Counter(JSONHandler)
+
+    public void startObject() throws ParseException {
+      open();
+      this.next.startObject();
+    } // startObject()
+
+    public void key(JSONString key) throws ParseException {
+      this.tokens++;
+      this.widths[this.depth - 1]++;
+      this.next.key(key);
+    } // key(JSONString)
+
+    public void endObject() throws ParseException {
+      this.tokens++;
+      this.maxWidth = Math.max(this.maxWidth, this.widths[--this.depth]);
+      this.next.endObject();
+    } // endObject()
+
+    public void startArray() throws ParseException {
+      open();
+      this.next.startArray();
+    } // startArray()
+
+    public void endArray() throws ParseException {
+      this.tokens++;
+      this.depth--;
+      this.next.endArray();
+    } // endArray()
+
+    public void value(JSONValue value) throws ParseException {
+      this.tokens++;
+      this.next.value(value);
+    } // value(JSONValue)
+
+    /**
+     * Count the start of a container.
+     */
+    void open() {
+      this.tokens++;
+      if (this.depth == this.widths.length) {
+        this.widths = Arrays.copyOf(this.widths, this.depth * 2);
+      } // if
+      this.widths[this.depth++] = 0;
+      this.maxDepth = Math.max(this.maxDepth, this.depth);
+    } // open()
+  } // class Counter
+
+  /**
+   * Counts the characters read through it.
+   */
+  static class CountingReader extends FilterReader {
+    long count;
+
+    CountingReader(Reader in) {
+      super(in);
+    } // CountingReader(Reader)
+
+    @Override
+    public int read() throws IOException {
+      int ch = this.in.read();
+      if (ch != -1) {
+        this.count++;
+      } // if
+      return ch;
+    } // read()
+
+    @Override
+    public int read(char[] buf, int off, int len) throws IOException {
+      int n = this.in.read(buf, off, len);
+      if (n > 0) {
+        this.count += n;
+      } // if
+      return n;
+    } // read(char[], int, int)
+  } // class CountingReader
+
+  /**
+   * Counts the characters written through it.
+   */
+  static class CountingWriter extends Writer {
+    Writer out;
+    long count;
+
+    CountingWriter(Writer out) {
+      this.out = out;
+    } // CountingWriter(Writer)
+
+    @Override
+    public void write(int ch) throws IOException {
+      this.out.write(ch);
+      this.count++;
+    } // write(int)
+
+    @Override
+    public void write(char[] buf, int off, int len) throws IOException {
+      this.out.write(buf, off, len);
+      this.count += len;
+    } // write(char[], int, int)
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+      this.out.write(str, off, len);
+      this.count += len;
+    } // write(String, int, int)
+
+    @Override
+    public void flush() throws IOException {
+      this.out.flush();
+    } // flush()
+
+    @Override
+    public void close() throws IOException {
+      this.out.close();
+    } // close()
+  } // class CountingWriter
+
+} // class JSONInstrumentation
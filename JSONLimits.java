@@ -0,0 +1,101 @@
+/**
+ * Bounds on what the parser will accept.  Input that goes past any of
+ * them fails with a ParseException as soon as the limit is crossed, so a
+ * hostile document cannot use up the stack or the heap.
+ *
+ * Limits are immutable; use the with methods to derive new ones, e.g.
+ * JSONLimits.DEFAULT.withMaxDepth(64).withMaxChars(1 << 20).
+ */
+public class JSONLimits {
+
+    // +---------------+-----------------------------------------------
+    // | Static fields |
+    // +---------------+
+
+    /**
+     * What JSON.parse uses unless told otherwise: nesting up to 1000
+     * levels and no bound on size.
+     */
+    public static final JSONLimits DEFAULT =
+            new JSONLimits(1000, Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    /**
+     * No limits at all.  The parser no longer recurses, so even very deep
+     * documents need only heap for the parser's own stack.
+     */
+    public static final JSONLimits NONE =
+            new JSONLimits(Integer.MAX_VALUE, Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+    // +--------+------------------------------------------------------
+    // | Fields |
+    // +--------+
+
+    final int maxDepth;  // Arrays and objects open at once.
+    final long maxChars;  // Characters in the whole input.
+    final int maxStringLength;  // Characters in one string, key, or number.
+    final int maxMembers;  // Members in one object.
+
+    // +--------------+------------------------------------------------
+    // | Constructors |
+    // +--------------+
+
+    /**
+     * Constructs a set of limits.
+     * @throws IllegalArgumentException if any limit is not positive.
+     */
+    public JSONLimits(int maxDepth, long maxChars, int maxStringLength, int maxMembers) {
+        if (maxDepth <= 0 || maxChars <= 0 || maxStringLength <= 0 || maxMembers <= 0) {
+            throw new IllegalArgumentException("Limits must be positive");
+        }
+        this.maxDepth = maxDepth;
+        this.maxChars = maxChars;
+        this.maxStringLength = maxStringLength;
+        this.maxMembers = maxMembers;
+    }
+
+    // +---------+-----------------------------------------------------
+    // | Methods |
+    // +---------+
+
+    public JSONLimits withMaxDepth(int maxDepth) {
+        return new JSONLimits(maxDepth, this.maxChars, this.maxStringLength, this.maxMembers);
+    }
+
+    /**
+     * Limit the size of the input.  The parser reads characters, so this
+     * counts chars (UTF-16 units) rather than encoded bytes.
+     */
+    public JSONLimits withMaxChars(long maxChars) {
+        return new JSONLimits(this.maxDepth, maxChars, this.maxStringLength, this.maxMembers);
+    }
+
+    public JSONLimits withMaxStringLength(int maxStringLength) {
+        return new JSONLimits(this.maxDepth, this.maxChars, maxStringLength, this.maxMembers);
+    }
+
+    public JSONLimits withMaxMembers(int maxMembers) {
+        return new JSONLimits(this.maxDepth, this.maxChars, this.maxStringLength, maxMembers);
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public long getMaxChars() {
+        return maxChars;
+    }
+
+    public int getMaxStringLength() {
+        return maxStringLength;
+    }
+
+    public int getMaxMembers() {
+        return maxMembers;
+    }
+
+    @Override
+    public String toString() {
+        return "JSONLimits[maxDepth=" + maxDepth + ", maxChars=" + maxChars
+                + ", maxStringLength=" + maxStringLength + ", maxMembers=" + maxMembers + "]";
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Receives measurements of parsing and writing.  Install one with
+ * JSON.setListener; JSONMetrics is a ready-made implementation.
+ * Listeners are called on the parsing or writing thread, so they should
+ * be quick and thread-safe.
+ */
+public interface JSONListener {
+
+  // +--------+------------------------------------------------------
+  // | Events |
+  // +--------+
+
+  /**
+   * A document was parsed.
+   *
+   * @param chars the characters read
+   * @param tokens the values, keys, and brackets seen
+   * @param maxDepth the deepest nesting of containers
+   * @param maxWidth the most members in any one object
+   * @param nanos how long the parse took
+   */
+  public void parsed(long chars, long tokens, int maxDepth, int maxWidth, long nanos);
+
+  /**
+   * A parse failed.
+   */
+  public void parseFailed(Exception error);
+
+  /**
+   * A value was written.
+   *
+   * @param chars the characters written
+   * @param nanos how long the write took
+   */
+  public void written(long chars, long nanos);
+
+  /**
+   * A write failed.  (PrintWriter hides the cause.)
+   */
+  public void writeFailed();
+
+} // interface JSONListener
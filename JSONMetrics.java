@@ -0,0 +1,200 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A JSONListener that keeps running totals and histograms, safe to share
+ * between threads.
+ */
+public class JSONMetrics implements JSONListener {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  final LongAdder parses = new LongAdder();
+  final LongAdder parseErrors = new LongAdder();
+  final LongAdder charsIn = new LongAdder();
+  final LongAdder tokens = new LongAdder();
+  final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+  final LongAdder writes = new LongAdder();
+  final LongAdder writeErrors = new LongAdder();
+  final LongAdder charsOut = new LongAdder();
+
+  /**
+   * Parse times, in nanoseconds.
+   */
+  final Histogram parseNanos = new Histogram();
+
+  /**
+   * Write times, in nanoseconds.
+   */
+  final Histogram writeNanos = new Histogram();
+
+  /**
+   * The nesting depth of each parsed document.
+   */
+  final Histogram depths = new Histogram();
+
+  /**
+   * The widest object in each parsed document.
+   */
+  final Histogram widths = new Histogram();
+
+  // +--------+------------------------------------------------------
+  // | Events |
+  // +--------+
+
+  public void parsed(long chars, long tokens, int maxDepth, int maxWidth, long nanos) {
+    this.parses.increment();
+    this.charsIn.add(chars);
+    this.tokens.add(tokens);
+    this.maxDepth.accumulate(maxDepth);
+    this.parseNanos.record(nanos);
+    this.depths.record(maxDepth);
+    this.widths.record(maxWidth);
+  } // parsed(long, long, int, int, long)
+
+  public void parseFailed(Exception error) {
+    this.parseErrors.increment();
+  } // parseFailed(Exception)
+
+  public void written(long chars, long nanos) {
+    this.writes.increment();
+    this.charsOut.add(chars);
+    this.writeNanos.record(nanos);
+  } // written(long, long)
+
+  public void writeFailed() {
+    this.writeErrors.increment();
+  } // writeFailed()
+
+  // +-----------+---------------------------------------------------
+  // | Observers |
+  // +-----------+
+
+  public long parses() {
+    return this.parses.sum();
+  } // parses()
+
+  public long parseErrors() {
+    return this.parseErrors.sum();
+  } // parseErrors()
+
+  public long charsIn() {
+    return this.charsIn.sum();
+  } // charsIn()
+
+  public long tokens() {
+    return this.tokens.sum();
+  } // tokens()
+
+  public long maxDepth() {
+    return this.maxDepth.get();
+  } // maxDepth()
+
+  public long writes() {
+    return this.writes.sum();
+  } // writes()
+
+  public long writeErrors() {
+    return this.writeErrors.sum();
+  } // writeErrors()
+
+  public long charsOut() {
+    return this.charsOut.sum();
+  } // charsOut()
+
+  public Histogram parseNanos() {
+    return this.parseNanos;
+  } // parseNanos()
+
+  public Histogram writeNanos() {
+    return this.writeNanos;
+  } // writeNanos()
+
+  public Histogram depths() {
+    return this.depths;
+  } // depths()
+
+  public Histogram widths() {
+    return this.widths;
+  } // widths()
+
+  /**
+   * Summarize the totals (e.g., for logging).
+   */
+  @Override
+  public String toString() {
+    return "parses=" + parses() + " parseErrors=" + parseErrors() + " charsIn=" + charsIn()
+        + " tokens=" + tokens() + " maxDepth=" + maxDepth() + " parseNanos[" + this.parseNanos
+        + "] writes=" + writes() + " writeErrors=" + writeErrors() + " charsOut=" + charsOut()
+        + " writeNanos[" + this.writeNanos + "]";
+  } // toString()
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * A lock-free histogram with power-of-two buckets: bucket 0 counts
+   * zeros, and bucket i counts values in [2^(i-1), 2^i).
+   */
+  public static class Histogram {
+
+    /**
+     * The counts.
+     */
+    final AtomicLongArray buckets = new AtomicLongArray(65);
+
+    /**
+     * Count a (non-negative) value.
+     */
+    public void record(long value) {
+      this.buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(value, 0)));
+    } // record(long)
+
+    /**
+     * The number of values recorded.
+     */
+    public long count() {
+      long total = 0;
+      for (int i = 0; i < this.buckets.length(); i++) {
+        total += this.buckets.get(i);
+      } // for
+      return total;
+    } // count()
+
+    /**
+     * The count in one bucket.
+     */
+    public long bucket(int i) {
+      return this.buckets.get(i);
+    } // bucket(int)
+
+    /**
+     * An upper bound on the given fraction (e.g., 0.99) of the values.
+     */
+    public long percentile(double fraction) {
+      long target = (long) Math.ceil(count() * fraction);
+      long seen = 0;
+      for (int i = 0; i < this.buckets.length(); i++) {
+        seen += this.buckets.get(i);
+        if (seen >= target && seen > 0) {
+          return (i == 0) ? 0 : (i == 64) ? Long.MAX_VALUE : (1L << i) - 1;
+        } // if
+      } // for
+      return 0;
+    } // percentile(double)
+
+    /**
+     * Summarize the histogram.
+     */
+    @Override
+    public String toString() {
+      return "count=" + count() + " p50<=" + percentile(0.5) + " p99<=" + percentile(0.99);
+    } // toString()
+
+  } // class Histogram
+
+} // class JSONMetrics
@@ -0,0 +1,31 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JDK Flight Recorder event for each JSON parse.
+ */
+@Name("json.Parse")
+@Label("JSON Parse")
+@Category("JSON")
+@Description("Parsing of one JSON document")
+class JSONParseEvent extends Event {
+
+  @Label("Characters")
+  long chars;
+
+  @Label("Tokens")
+  long tokens;
+
+  @Label("Max Depth")
+  int maxDepth;
+
+  @Label("Max Object Width")
+  int maxWidth;
+
+  @Label("Failed")
+  boolean failed;
+
+} // class JSONParseEvent
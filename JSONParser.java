@@ -0,0 +1,511 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * A streaming parser that reads one JSON value and reports it to a
+ * JSONHandler as a sequence of events.  Nesting is tracked on an explicit
+ * stack rather than by recursion, and the input is held to a JSONLimits.
+ */
+class JSONParser {
+    // +-----------+---------------------------------------------------
+    // | Constants |
+    // +-----------+
+
+    /**
+     * The characters other than brackets and quotes that may appear in an
+     * array or object that is being skipped: whitespace, separators, and
+     * the characters of numbers and literals.
+     */
+    static final boolean[] SKIPPABLE = new boolean[128];
+
+    static {
+        for (char ch : " \n\r\t,:0123456789+-.eEtrufalsn".toCharArray()) {
+            SKIPPABLE[ch] = true;
+        }
+    }
+
+    // +--------+------------------------------------------------------
+    // | Fields |
+    // +--------+
+
+    Reader source;  // The input.
+    JSONHandler handler;  // Where events go.
+    char[] buf;  // The characters most recently read from source.
+    int index;  // The next character to consume in buf.
+    int limit;  // The end of the characters in buf.
+    long offset;  // The position in the input of buf[0].
+    JSONLimits limits;  // What the input may not exceed.
+    boolean[] objects;  // For each open container, whether it is an object.
+    int[] members;  // For each open container, its members so far.
+    int depth;  // The number of open containers.
+    JSONProjection.Node[] nodes;  // For each open container, its projection step (null if not projecting).
+    JSONProjection.Node next;  // The projection step for the value about to be read.
+    boolean[] skipped;  // For each container being skipped, whether it is an object.
+
+    // +--------------+------------------------------------------------
+    // | Constructors |
+    // +--------------+
+
+    JSONParser(Reader source, JSONHandler handler) {
+        this(source, handler, JSONLimits.DEFAULT);
+    }
+
+    JSONParser(Reader source, JSONHandler handler, JSONLimits limits) {
+        this(source, handler, limits, null);
+    }
+
+    /**
+     * Make a parser that reports only the parts of the input that
+     * projection selects, or everything if projection is null.
+     */
+    JSONParser(Reader source, JSONHandler handler, JSONLimits limits, JSONProjection projection) {
+        this.source = source;
+        this.handler = handler;
+        this.buf = new char[8192];
+        this.index = 0;
+        this.limit = 0;
+        this.offset = 0;
+        this.limits = limits;
+        this.objects = new boolean[16];
+        this.members = new int[16];
+        this.depth = 0;
+        if (projection != null) {
+            this.nodes = new JSONProjection.Node[16];
+            this.next = projection.root;
+            this.skipped = new boolean[16];
+        }
+    }
+
+    // +---------+-----------------------------------------------------
+    // | Methods |
+    // +---------+
+
+    /**
+     * Parse a single value, followed by nothing but whitespace.
+     */
+    void parse() throws ParseException, IOException {
+        try {
+            parseKernel();
+            if (-1 != skipWhitespace()) {
+                throw new ParseException("Characters remain at end", pos());
+            }
+        } catch (ParseException e) {
+            if (e.getErrorOffset() < 0) {
+                throw new ParseException(e.getMessage(), pos());
+            }
+            throw e;
+        }
+    }
+
+    // +---------------+-----------------------------------------------
+    // | Local helpers |
+    // +---------------+
+
+    /**
+     * Parse the next value, however deeply nested.  Each pass of the outer
+     * loop handles one value whose first character is ch; the inner loop
+     * then closes finished containers until it finds where the next value
+     * starts, or the top-level value is done.
+     */
+    void parseKernel() throws ParseException, IOException {
+        int ch = skipWhitespace();
+        while (true) {
+            if (nodes != null && (next == null || !next.fits(ch))) {
+                skipValue(ch);
+            } else {
+                switch (ch) {
+                    case -1: throw new ParseException("Unexpected end of file", pos());
+                    case '"': handler.value(new JSONString(parseString())); break;
+                    case 't': parseLiteral("rue", JSONConstant.TRUE); break;
+                    case 'f': parseLiteral("alse", JSONConstant.FALSE); break;
+                    case 'n': parseLiteral("ull", JSONConstant.NULL); break;
+                    case '[':
+                        push(false);
+                        handler.startArray();
+                        ch = skipWhitespace();
+                        if (ch != ']') {
+                            if (nodes != null) next = element();
+                            continue;
+                        }
+                        pop();
+                        handler.endArray();
+                        break;
+                    case '{':
+                        push(true);
+                        handler.startObject();
+                        ch = skipWhitespace();
+                        if (ch != '}') {
+                            ch = parseKey(ch);
+                            continue;
+                        }
+                        pop();
+                        handler.endObject();
+                        break;
+                    default:
+                        if ((ch >= '0' && ch <= '9') || ch == '-') {
+                            handler.value(parseNumber(ch));
+                            break;
+                        }
+                        throw new ParseException("Unexpected character", pos());
+                }
+            }
+            // A value is complete; find the start of the next one.
+            while (true) {
+                if (depth == 0) return;
+                ch = skipWhitespace();
+                boolean object = objects[depth - 1];
+                if (ch == ',') {
+                    ch = skipWhitespace();
+                    if (object) {
+                        ch = parseKey(ch);
+                    } else if (nodes != null) {
+                        next = element();
+                    }
+                    break;
+                }
+                if (ch == (object ? '}' : ']')) {
+                    pop();
+                    if (object) {
+                        handler.endObject();
+                    } else {
+                        handler.endArray();
+                    }
+                } else if (ch == -1) {
+                    throw new ParseException(object ? "Unterminated object" : "Unterminated array", pos());
+                } else {
+                    throw new ParseException(object ? "Expected ',' or '}' in object" : "Expected ',' or ']' in array", pos());
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse an object member's key and colon, given the key's first
+     * character, and return the first character of its value.
+     */
+    int parseKey(int ch) throws ParseException, IOException {
+        if (ch == -1) throw new ParseException("Unterminated object", pos());
+        if (ch != '"') throw new ParseException("Expected '\"' at the beginning of key in object", pos());
+        if (++members[depth - 1] > limits.maxMembers) {
+            throw new ParseException("Object has more than " + limits.maxMembers + " members", pos());
+        }
+        if (nodes == null) {
+            handler.key(new JSONString(parseString()));
+        } else {
+            String key = parseString();
+            next = nodes[depth - 1].field(key);
+            if (next != null) handler.key(new JSONString(key));
+        }
+        if (skipWhitespace() != ':') throw new ParseException("Expected ':' after key in object", pos());
+        return skipWhitespace();
+    }
+
+    /**
+     * Open a container.
+     */
+    void push(boolean object) throws ParseException {
+        if (depth == limits.maxDepth) {
+            throw new ParseException("Nesting deeper than " + limits.maxDepth, pos());
+        }
+        if (depth == objects.length) {
+            objects = Arrays.copyOf(objects, depth * 2);
+            members = Arrays.copyOf(members, depth * 2);
+            if (nodes != null) nodes = Arrays.copyOf(nodes, depth * 2);
+        }
+        if (nodes != null) nodes[depth] = next;
+        objects[depth] = object;
+        members[depth] = 0;
+        depth++;
+    }
+
+    /**
+     * Close the innermost container.
+     */
+    void pop() {
+        depth--;
+    }
+
+    /**
+     * The projection step for the next element of the innermost array.
+     */
+    JSONProjection.Node element() {
+        return nodes[depth - 1].element(members[depth - 1]++);
+    }
+
+    /**
+     * Skip a value whose first character has been read, without decoding
+     * or reporting it.  Literals must be spelled out in full, but numbers
+     * are only checked for the characters they may contain.  Arrays and
+     * objects are checked only for matching brackets and for characters
+     * that cannot appear in JSON outside strings; commas, colons, and the
+     * scalars inside them are not checked.
+     */
+    void skipValue(int ch) throws ParseException, IOException {
+        if (ch == '"') {
+            skipString();
+        } else if (ch == '[' || ch == '{') {
+            int nesting = 0;
+            while (true) {
+                if (ch == '[' || ch == '{') {
+                    if (depth + nesting == limits.maxDepth) {
+                        throw new ParseException("Nesting deeper than " + limits.maxDepth, pos());
+                    }
+                    if (nesting == skipped.length) skipped = Arrays.copyOf(skipped, nesting * 2);
+                    skipped[nesting++] = (ch == '{');
+                } else if (ch == ']' || ch == '}') {
+                    if (skipped[nesting - 1] != (ch == '}')) {
+                        throw new ParseException("Mismatched '" + (char) ch + "'", pos());
+                    }
+                    if (--nesting == 0) return;
+                } else if (ch == '"') {
+                    skipString();
+                } else if (ch == -1) {
+                    throw new ParseException("Unexpected end of file", pos());
+                } else if (ch >= SKIPPABLE.length || !SKIPPABLE[ch]) {
+                    throw new ParseException("Unexpected character", pos());
+                }
+                if (index == limit && !fill()) ch = -1;
+                else ch = buf[index++];
+            }
+        } else if (ch == 't') {
+            skipLiteral("rue");
+        } else if (ch == 'f') {
+            skipLiteral("alse");
+        } else if (ch == 'n') {
+            skipLiteral("ull");
+        } else if ((ch >= '0' && ch <= '9') || ch == '-') {
+            while (true) {
+                while (index < limit) {
+                    char c = buf[index];
+                    if (!(c >= '0' && c <= '9' || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E')) return;
+                    index++;
+                }
+                if (!fill()) return;
+            }
+        } else if (ch == -1) {
+            throw new ParseException("Unexpected end of file", pos());
+        } else {
+            throw new ParseException("Unexpected character", pos());
+        }
+    }
+
+    /**
+     * Skip the rest of a string whose opening quote has been read.
+     */
+    void skipString() throws ParseException, IOException {
+        while (true) {
+            while (index < limit) {
+                char c = buf[index++];
+                if (c == '"') return;
+                if (c < 0x20) throw new ParseException("Unescaped control character in string", pos());
+                if (c == '\\') {
+                    if (index == limit && !fill()) break;
+                    index++;
+                }
+            }
+            if (!fill()) throw new ParseException("Unterminated string", pos());
+        }
+    }
+
+    /**
+     * Parse the rest of a string whose opening quote has been read.
+     * Runs without escapes are copied in bulk, and a string with no
+     * escapes that fits in the buffer is built without a StringBuilder.
+     */
+    String parseString() throws ParseException, IOException {
+        StringBuilder sb = null;
+        int start = index;
+        while (true) {
+            char c = 0;
+            // Stop scanning where the string would become too long.
+            int end = (int) Math.min(limit, index + (long) limits.maxStringLength + 1
+                    - (sb == null ? 0 : sb.length()) - (index - start));
+            while (index < end) {
+                c = buf[index];
+                if (c == '"' || c == '\\' || c < 0x20) break;
+                index++;
+            }
+            if (index == end && end < limit) {
+                throw new ParseException("String longer than " + limits.maxStringLength, pos());
+            }
+            if (index == limit) {
+                // The buffer ran out in the middle of the string.
+                if (sb == null) sb = new StringBuilder(Math.max(16, 2 * (index - start)));
+                sb.append(buf, start, index - start);
+                if (sb.length() > limits.maxStringLength) {
+                    throw new ParseException("String longer than " + limits.maxStringLength, pos());
+                }
+                if (!fill()) throw new ParseException("Unterminated string", pos());
+                start = index;
+                continue;
+            }
+            if (c < 0x20) {
+                throw new ParseException("Unescaped control character in string", pos());
+            }
+            if (c == '"') {
+                String str = (sb == null)
+                        ? new String(buf, start, index - start)
+                        : sb.append(buf, start, index - start).toString();
+                index++;
+                return str;
+            }
+            if (sb == null) sb = new StringBuilder(Math.max(16, 2 * (index - start)));
+            sb.append(buf, start, index - start);
+            index++;
+            parseEscape(sb);
+            start = index;
+        }
+    }
+
+    /**
+     * Decode the escape sequence after a backslash.  Surrogate pairs,
+     * which JSON writes as two \\u escapes, come out as the two halves
+     * of the pair.
+     */
+    void parseEscape(StringBuilder sb) throws ParseException, IOException {
+        int e = read();
+        switch (e) {
+            case '"': sb.append('"'); break;
+            case '\\': sb.append('\\'); break;
+            case '/': sb.append('/'); break;
+            case 'b': sb.append('\b'); break;
+            case 'f': sb.append('\f'); break;
+            case 'n': sb.append('\n'); break;
+            case 'r': sb.append('\r'); break;
+            case 't': sb.append('\t'); break;
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = hexDigit(read());
+                    if (digit < 0) throw new ParseException("Invalid \\u escape in string", pos());
+                    code = (code << 4) | digit;
+                }
+                sb.append((char) code);
+                break;
+            case -1: throw new ParseException("Unterminated string", pos());
+            default: throw new ParseException("Invalid escape in string", pos());
+        }
+    }
+
+    /**
+     * The value of an ASCII hex digit, or -1 for any other character
+     * (Character.digit would also take, e.g., fullwidth digits).
+     */
+    static int hexDigit(int ch) {
+        if (ch >= '0' && ch <= '9') return ch - '0';
+        if (ch >= 'a' && ch <= 'f') return ch - 'a' + 10;
+        if (ch >= 'A' && ch <= 'F') return ch - 'A' + 10;
+        return -1;
+    }
+
+    /**
+     * Parse the rest of true, false, or null, whose first letter has been read.
+     */
+    void parseLiteral(String rest, JSONValue value) throws ParseException, IOException {
+        skipLiteral(rest);
+        handler.value(value);
+    }
+
+    /**
+     * Check the rest of true, false, or null, whose first letter has been read.
+     */
+    void skipLiteral(String rest) throws ParseException, IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw new ParseException("Invalid literal", pos());
+            }
+        }
+    }
+
+    /**
+     * Parse a number whose first character has been read.
+     */
+    JSONValue parseNumber(int firstChar) throws ParseException, IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append((char) firstChar);
+        boolean real = false;
+        while (true) {
+            int start = index;
+            while (index < limit) {
+                char c = buf[index];
+                if (c >= '0' && c <= '9' || c == '-' || c == '+') {
+                    index++;
+                } else if (c == '.' || c == 'e' || c == 'E') {
+                    real = true;
+                    index++;
+                } else {
+                    break;
+                }
+            }
+            sb.append(buf, start, index - start);
+            if (sb.length() > limits.maxStringLength) {
+                throw new ParseException("Number longer than " + limits.maxStringLength, pos());
+            }
+            if (index < limit || !fill()) break;
+        }
+        String num = sb.toString();
+        try {
+            if (real) {
+                return new JSONReal(num);
+            } else {
+                return new JSONInteger(num);
+            }
+        } catch (NumberFormatException e) {
+            throw new ParseException("Invalid number", pos());
+        }
+    }
+
+    /**
+     * Skip whitespace characters in the input source, returning the first
+     * other character (consumed), or -1 at the end of the input.
+     */
+    int skipWhitespace() throws ParseException, IOException {
+        while (true) {
+            while (index < limit) {
+                char ch = buf[index++];
+                if (ch != ' ' && ch != '\n' && ch != '\r' && ch != '\t') {
+                    return ch;
+                }
+            }
+            if (!fill()) return -1;
+        }
+    }
+
+    /**
+     * Consume the next character, or return -1 at the end of the input.
+     */
+    int read() throws ParseException, IOException {
+        if (index == limit && !fill()) return -1;
+        return buf[index++];
+    }
+
+    /**
+     * Refill the buffer once everything in it has been consumed.  Returns
+     * false at the end of the input.
+     */
+    boolean fill() throws ParseException, IOException {
+        offset += limit;
+        index = 0;
+        limit = 0;
+        int n;
+        do {
+            n = source.read(buf, 0, buf.length);
+        } while (n == 0);
+        if (n < 0) return false;
+        limit = n;
+        if (offset + n > limits.maxChars) {
+            throw new ParseException("Input longer than " + limits.maxChars + " characters",
+                    (int) Math.min(Integer.MAX_VALUE, limits.maxChars));
+        }
+        return true;
+    }
+
+    /**
+     * The current position in the input.
+     */
+    int pos() {
+        return (int) Math.min(Integer.MAX_VALUE, offset + index);
+    }
+}
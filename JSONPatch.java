@@ -0,0 +1,450 @@
+import java.util.IdentityHashMap;
+
+/**
+ * Structural diffs between JSON values, expressed as JSON Patch (RFC 6902)
+ * documents, and an applier for such patches.
+ *
+ * A patch is a JSONArray of operation objects such as
+ * {"op": "replace", "path": "/a/0", "value": 1}.  Diffs compare subtree
+ * fingerprints (see JSONFingerprint) and descend only where they differ,
+ * so an unchanged subtree is skipped on one comparison, without walking
+ * it again.  Each node of the two documents is hashed once per diff (a
+ * subtree that the two documents share as the same object is skipped at
+ * once), and the rest of the work grows with the size of the change.
+ *
+ * Matching fingerprints are trusted, not confirmed: two different
+ * subtrees are taken to be the same only if their 64-bit fingerprints
+ * collide, which for a given pair happens with probability about 2^-64.
+ * As in JSONFingerprint, numbers with equal values (1 and 1.0) are the
+ * same, so no operation is emitted to change one into the other.
+ */
+public class JSONPatch {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  static final JSONString OP = new JSONString("op");
+  static final JSONString PATH = new JSONString("path");
+  static final JSONString FROM = new JSONString("from");
+  static final JSONString VALUE = new JSONString("value");
+
+  static final JSONString ADD = new JSONString("add");
+  static final JSONString REMOVE = new JSONString("remove");
+  static final JSONString REPLACE = new JSONString("replace");
+  static final JSONString MOVE = new JSONString("move");
+  static final JSONString COPY = new JSONString("copy");
+  static final JSONString TEST = new JSONString("test");
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Fingerprints of the containers seen during this diff, so that each
+   * subtree is hashed at most once.
+   */
+  IdentityHashMap<JSONValue, Long> fingerprints;
+
+  /**
+   * The operations produced so far.
+   */
+  JSONArray patch;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Set up the state for a single diff.
+   */
+  private JSONPatch() {
+    this.fingerprints = new IdentityHashMap<JSONValue, Long>();
+    this.patch = new JSONArray();
+  } // JSONPatch()
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Compute a patch that turns source into target.  Values in the patch
+   * share structure with target; apply copies them before inserting.
+   */
+  public static JSONArray diff(JSONValue source, JSONValue target) {
+    JSONPatch differ = new JSONPatch();
+    differ.diff("", source, target);
+    return differ.patch;
+  } // diff(JSONValue, JSONValue)
+
+  /**
+   * Apply a patch to a document, modifying it in place.  Returns the
+   * resulting document, which is a different object only when the patch
+   * replaces the root.  If an operation fails, an IllegalArgumentException
+   * is thrown and the operations before it remain applied.
+   */
+  public static JSONValue apply(JSONValue document, JSONArray patch) {
+    for (int i = 0; i < patch.size(); i++) {
+      if (!(patch.get(i) instanceof JSONHash)) {
+        throw new IllegalArgumentException("Patch operation " + i + " is not an object");
+      } // if
+      document = applyOperation(document, (JSONHash) patch.get(i));
+    } // for
+    return document;
+  } // apply(JSONValue, JSONArray)
+
+  // +---------------+-----------------------------------------------
+  // | Diff helpers  |
+  // +---------------+
+
+  /**
+   * Record the operations needed to turn source into target at path.
+   */
+  void diff(String path, JSONValue source, JSONValue target) {
+    if (same(source, target)) {
+      return;
+    } else if ((source instanceof JSONHash) && (target instanceof JSONHash)) {
+      diffHashes(path, (JSONHash) source, (JSONHash) target);
+    } else if ((source instanceof JSONArray) && (target instanceof JSONArray)) {
+      diffArrays(path, (JSONArray) source, (JSONArray) target);
+    } else {
+      emit(REPLACE, path, target);
+    } // if/else
+  } // diff(String, JSONValue, JSONValue)
+
+  /**
+   * Diff two objects key by key.
+   */
+  void diffHashes(String path, JSONHash source, JSONHash target) {
+    for (KVPair<JSONString, JSONValue> pair : source) {
+      JSONValue other = target.get(pair.key());
+      String child = path + "/" + escape(pair.key().getValue());
+      if (other == null) {
+        emit(REMOVE, child, null);
+      } else {
+        diff(child, pair.value(), other);
+      } // if/else
+    } // for
+    for (KVPair<JSONString, JSONValue> pair : target) {
+      if (source.get(pair.key()) == null) {
+        emit(ADD, path + "/" + escape(pair.key().getValue()), pair.value());
+      } // if
+    } // for
+  } // diffHashes(String, JSONHash, JSONHash)
+
+  /**
+   * Diff two arrays in linear time.  The common prefix and suffix are
+   * trimmed, the overlapping middle is diffed position by position, and
+   * whatever is left over is removed or added.  This finds single
+   * insertions and deletions exactly, but is not a minimal edit script.
+   */
+  void diffArrays(String path, JSONArray source, JSONArray target) {
+    int n = source.size();
+    int m = target.size();
+    int prefix = 0;
+    while ((prefix < n) && (prefix < m) && same(source.get(prefix), target.get(prefix))) {
+      prefix++;
+    } // while
+    int suffix = 0;
+    while ((suffix < n - prefix) && (suffix < m - prefix)
+        && same(source.get(n - 1 - suffix), target.get(m - 1 - suffix))) {
+      suffix++;
+    } // while
+    int sourceEnd = n - suffix;
+    int targetEnd = m - suffix;
+    int common = Math.min(sourceEnd, targetEnd) - prefix;
+    for (int i = prefix; i < prefix + common; i++) {
+      diff(path + "/" + i, source.get(i), target.get(i));
+    } // for
+    // Remove from the highest index down so earlier indices stay valid.
+    for (int i = sourceEnd - 1; i >= prefix + common; i--) {
+      emit(REMOVE, path + "/" + i, null);
+    } // for
+    for (int i = prefix + common; i < targetEnd; i++) {
+      emit(ADD, path + "/" + i, target.get(i));
+    } // for
+  } // diffArrays(String, JSONArray, JSONArray)
+
+  /**
+   * Determine whether two values are the same, by fingerprint (see the
+   * class comment for the chance of a collision).
+   */
+  boolean same(JSONValue source, JSONValue target) {
+    return (source == target) || (fingerprint(source) == fingerprint(target));
+  } // same(JSONValue, JSONValue)
+
+  /**
+   * Add one operation to the patch.
+   */
+  void emit(JSONString op, String path, JSONValue value) {
+    JSONHash operation = new JSONHash();
+    operation.set(OP, op);
+    operation.set(PATH, new JSONString(path));
+    if (value != null) {
+      operation.set(VALUE, value);
+    } // if
+    this.patch.add(operation);
+  } // emit(JSONString, String, JSONValue)
+
+  /**
+   * Compute (or look up) the fingerprint of a value.  This is the same as
+   * JSONFingerprint.of, but remembers the fingerprint of each container
+   * so no subtree is hashed twice during a diff.
+   */
+  long fingerprint(JSONValue value) {
+    if (!((value instanceof JSONHash) || (value instanceof JSONArray))) {
+      return JSONFingerprint.of(value);
+    } // if
+    Long cached = this.fingerprints.get(value);
+    if (cached != null) {
+      return cached;
+    } // if
+    long hash;
+    if (value instanceof JSONArray) {
+      JSONArray array = (JSONArray) value;
+      hash = JSONFingerprint.ARRAY;
+      for (int i = 0; i < array.size(); i++) {
+        hash = JSONFingerprint.element(hash, fingerprint(array.get(i)));
+      } // for
+      hash = JSONFingerprint.array(hash);
+    } else {
+      hash = 0;
+      int size = 0;
+      for (KVPair<JSONString, JSONValue> pair : (JSONHash) value) {
+        hash = JSONFingerprint.member(hash, JSONFingerprint.string(pair.key().getValue()),
+            fingerprint(pair.value()));
+        size++;
+      } // for
+      hash = JSONFingerprint.object(hash, size);
+    } // if/else
+    this.fingerprints.put(value, hash);
+    return hash;
+  } // fingerprint(JSONValue)
+
+  // +----------------+----------------------------------------------
+  // | Apply helpers  |
+  // +----------------+
+
+  /**
+   * Apply a single operation, returning the (possibly new) document.
+   */
+  static JSONValue applyOperation(JSONValue document, JSONHash operation) {
+    JSONValue op = operation.get(OP);
+    String path = stringMember(operation, PATH);
+    if (ADD.equals(op)) {
+      return add(document, path, copy(member(operation, VALUE)));
+    } else if (REMOVE.equals(op)) {
+      remove(document, path);
+      return document;
+    } else if (REPLACE.equals(op)) {
+      JSONValue value = copy(member(operation, VALUE));
+      if (path.isEmpty()) {
+        return value;
+      } // if
+      remove(document, path);
+      return add(document, path, value);
+    } else if (MOVE.equals(op)) {
+      String from = stringMember(operation, FROM);
+      if (path.startsWith(from + "/")) {
+        throw new IllegalArgumentException("Cannot move " + from + " into its own child " + path);
+      } // if
+      if (from.equals(path)) {
+        lookup(document, from);
+        return document;
+      } // if
+      return add(document, path, remove(document, from));
+    } else if (COPY.equals(op)) {
+      String from = stringMember(operation, FROM);
+      return add(document, path, copy(lookup(document, from)));
+    } else if (TEST.equals(op)) {
+      // RFC 6902 compares numbers by value, as canonical forms do.
+      String expected = JSONCanonical.toString(member(operation, VALUE));
+      if (!JSONCanonical.toString(lookup(document, path)).equals(expected)) {
+        throw new IllegalArgumentException("Test failed at " + path);
+      } // if
+      return document;
+    } else {
+      throw new IllegalArgumentException("Unknown patch operation " + op);
+    } // if/else
+  } // applyOperation(JSONValue, JSONHash)
+
+  /**
+   * Add a value at path, returning the (possibly new) document.
+   */
+  static JSONValue add(JSONValue document, String path, JSONValue value) {
+    if (path.isEmpty()) {
+      return value;
+    } else if (path.charAt(0) != '/') {
+      throw new IllegalArgumentException("Invalid JSON pointer: " + path);
+    } // if/else
+    int slash = path.lastIndexOf('/');
+    JSONValue parent = lookup(document, path.substring(0, slash));
+    String token = unescape(path.substring(slash + 1));
+    if (parent instanceof JSONHash) {
+      ((JSONHash) parent).set(new JSONString(token), value);
+    } else if (parent instanceof JSONArray) {
+      JSONArray array = (JSONArray) parent;
+      if ("-".equals(token)) {
+        array.add(value);
+      } else {
+        int index = index(token, path);
+        if (index > array.size()) {
+          throw new IllegalArgumentException("Index out of bounds: " + path);
+        } // if
+        array.add(index, value);
+      } // if/else
+    } else {
+      throw new IllegalArgumentException("Cannot add to a scalar: " + path);
+    } // if/else
+    return document;
+  } // add(JSONValue, String, JSONValue)
+
+  /**
+   * Remove the value at path, returning it.
+   */
+  static JSONValue remove(JSONValue document, String path) {
+    if (path.isEmpty()) {
+      throw new IllegalArgumentException("Cannot remove the root");
+    } else if (path.charAt(0) != '/') {
+      throw new IllegalArgumentException("Invalid JSON pointer: " + path);
+    } // if/else
+    int slash = path.lastIndexOf('/');
+    JSONValue parent = lookup(document, path.substring(0, slash));
+    String token = unescape(path.substring(slash + 1));
+    JSONValue removed = null;
+    if (parent instanceof JSONHash) {
+      removed = ((JSONHash) parent).remove(new JSONString(token));
+    } else if (parent instanceof JSONArray) {
+      JSONArray array = (JSONArray) parent;
+      int index = index(token, path);
+      if (index < array.size()) {
+        removed = array.remove(index);
+      } // if
+    } // if/else
+    if (removed == null) {
+      throw new IllegalArgumentException("No value at " + path);
+    } // if
+    return removed;
+  } // remove(JSONValue, String)
+
+  /**
+   * Find the value at path.
+   */
+  static JSONValue lookup(JSONValue document, String path) {
+    if (path.isEmpty()) {
+      return document;
+    } else if (path.charAt(0) != '/') {
+      throw new IllegalArgumentException("Invalid JSON pointer: " + path);
+    } // if/else
+    JSONValue current = document;
+    int start = 1;
+    while (current != null) {
+      int end = path.indexOf('/', start);
+      if (end < 0) {
+        end = path.length();
+      } // if
+      String token = unescape(path.substring(start, end));
+      if (current instanceof JSONHash) {
+        current = ((JSONHash) current).get(new JSONString(token));
+      } else if (current instanceof JSONArray) {
+        JSONArray array = (JSONArray) current;
+        int index = index(token, path);
+        current = (index < array.size()) ? array.get(index) : null;
+      } else {
+        current = null;
+      } // if/else
+      if (end == path.length()) {
+        break;
+      } // if
+      start = end + 1;
+    } // while
+    if (current == null) {
+      throw new IllegalArgumentException("No value at " + path);
+    } // if
+    return current;
+  } // lookup(JSONValue, String)
+
+  /**
+   * Convert a pointer token to an array index.
+   */
+  static int index(String token, String path) {
+    if (token.isEmpty() || (token.length() > 1 && token.charAt(0) == '0')) {
+      throw new IllegalArgumentException("Invalid array index in " + path);
+    } // if
+    for (int i = 0; i < token.length(); i++) {
+      if (!Character.isDigit(token.charAt(i))) {
+        throw new IllegalArgumentException("Invalid array index in " + path);
+      } // if
+    } // for
+    try {
+      return Integer.parseInt(token);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid array index in " + path);
+    } // try/catch
+  } // index(String, String)
+
+  /**
+   * Get a required member of an operation.
+   */
+  static JSONValue member(JSONHash operation, JSONString name) {
+    JSONValue value = operation.get(name);
+    if (value == null) {
+      throw new IllegalArgumentException("Operation is missing \"" + name.getValue() + "\"");
+    } // if
+    return value;
+  } // member(JSONHash, JSONString)
+
+  /**
+   * Get a required string member of an operation.
+   */
+  static String stringMember(JSONHash operation, JSONString name) {
+    JSONValue value = member(operation, name);
+    if (!(value instanceof JSONString)) {
+      throw new IllegalArgumentException("\"" + name.getValue() + "\" must be a string");
+    } // if
+    return ((JSONString) value).getValue();
+  } // stringMember(JSONHash, JSONString)
+
+  /**
+   * Make a deep copy of a value, so patched documents never share
+   * containers with the patch.
+   */
+  static JSONValue copy(JSONValue value) {
+    if (value instanceof JSONArray) {
+      JSONArray result = new JSONArray();
+      for (JSONValue element : ((JSONArray) value).getValue()) {
+        result.add(copy(element));
+      } // for
+      return result;
+    } else if (value instanceof JSONHash) {
+      JSONHash result = new JSONHash();
+      for (KVPair<JSONString, JSONValue> pair : (JSONHash) value) {
+        result.set(pair.key(), copy(pair.value()));
+      } // for
+      return result;
+    } else {
+      return value;
+    } // if/else
+  } // copy(JSONValue)
+
+  /**
+   * Escape a key for use as a JSON pointer token.
+   */
+  static String escape(String key) {
+    if ((key.indexOf('~') < 0) && (key.indexOf('/') < 0)) {
+      return key;
+    } // if
+    return key.replace("~", "~0").replace("/", "~1");
+  } // escape(String)
+
+  /**
+   * Undo escape.
+   */
+  static String unescape(String token) {
+    if (token.indexOf('~') < 0) {
+      return token;
+    } // if
+    return token.replace("~1", "/").replace("~0", "~");
+  } // unescape(String)
+
+} // class JSONPatch
@@ -0,0 +1,247 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A set of paths into a document, such as user.id or items[*].price,
+ * that tells the parser which parts to build.  Everything else is
+ * skipped as it is read, with lighter checks than a full parse:
+ * unselected strings are not decoded (so bad escapes go unnoticed),
+ * unselected numbers are checked only for the characters they may
+ * contain (so 1.2.3 goes unnoticed), and unselected arrays and objects
+ * are checked only for matching brackets and for characters that cannot
+ * appear in JSON (so a missing comma or colon inside them goes
+ * unnoticed).  Unselected true, false, and null must be spelled out.
+ *
+ * A path is a sequence of steps: a member name (separated from the step
+ * before by a dot), [n] for the element at index n, or [*] for every
+ * element.  A path selects the whole value it reaches, and the objects
+ * and arrays on the way there keep only the members and elements on some
+ * selected path.  A value whose type does not fit the paths through it
+ * (e.g., a string where user.id expects an object) is left out.
+ */
+public class JSONProjection {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The step that matches the top-level value.
+   */
+  final Node root;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  JSONProjection(Node root) {
+    this.root = root;
+  } // JSONProjection(Node)
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Build a projection from paths.  Throws an IllegalArgumentException if
+   * a path is malformed.
+   */
+  public static JSONProjection of(String... paths) {
+    Node root = new Node();
+    for (String path : paths) {
+      add(root, path);
+    } // for
+    spread(root);
+    return new JSONProjection(root);
+  } // of(String...)
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Add the steps of a path below root.
+   */
+  static void add(Node root, String path) {
+    Node node = root;
+    int i = 0;
+    int n = path.length();
+    if (n == 0) {
+      throw new IllegalArgumentException("Empty path");
+    } // if
+    while (i < n) {
+      char ch = path.charAt(i);
+      if (ch == '[') {
+        int close = path.indexOf(']', i);
+        if (close < 0) {
+          throw new IllegalArgumentException("Unclosed [ in " + path);
+        } // if
+        String index = path.substring(i + 1, close);
+        if (index.equals("*")) {
+          if (node.any == null) {
+            node.any = new Node();
+          } // if
+          node = node.any;
+        } else {
+          int k;
+          try {
+            k = Integer.parseInt(index);
+          } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid index [" + index + "] in " + path);
+          } // try/catch
+          if (k < 0) {
+            throw new IllegalArgumentException("Invalid index [" + index + "] in " + path);
+          } // if
+          if (node.indexes == null) {
+            node.indexes = new HashMap<>();
+          } // if
+          node = node.indexes.computeIfAbsent(k, key -> new Node());
+        } // if/else
+        i = close + 1;
+        if (i < n && path.charAt(i) == '.') {
+          i++;
+          if (i == n) {
+            throw new IllegalArgumentException("Path ends with . in " + path);
+          } // if
+        } // if
+      } else {
+        int end = i;
+        while (end < n && path.charAt(end) != '.' && path.charAt(end) != '[') {
+          end++;
+        } // while
+        if (end == i) {
+          throw new IllegalArgumentException("Empty member name in " + path);
+        } // if
+        if (node.fields == null) {
+          node.fields = new HashMap<>();
+        } // if
+        node = node.fields.computeIfAbsent(path.substring(i, end), key -> new Node());
+        i = end;
+        if (i < n && path.charAt(i) == '.') {
+          i++;
+          if (i == n) {
+            throw new IllegalArgumentException("Path ends with . in " + path);
+          } // if
+        } // if
+      } // if/else
+    } // while
+    node.all = true;
+  } // add(Node, String)
+
+  /**
+   * Copy each [*] step into the [n] steps beside it, so an element needs
+   * to look in only one place.
+   */
+  static void spread(Node node) {
+    if (node.any != null && node.indexes != null) {
+      for (Node indexed : node.indexes.values()) {
+        merge(indexed, node.any);
+      } // for
+    } // if
+    if (node.fields != null) {
+      for (Node child : node.fields.values()) {
+        spread(child);
+      } // for
+    } // if
+    if (node.any != null) {
+      spread(node.any);
+    } // if
+    if (node.indexes != null) {
+      for (Node child : node.indexes.values()) {
+        spread(child);
+      } // for
+    } // if
+  } // spread(Node)
+
+  /**
+   * Add the paths below source to those below target.
+   */
+  static void merge(Node target, Node source) {
+    target.all |= source.all;
+    if (source.fields != null) {
+      if (target.fields == null) {
+        target.fields = new HashMap<>();
+      } // if
+      for (Map.Entry<String, Node> entry : source.fields.entrySet()) {
+        merge(target.fields.computeIfAbsent(entry.getKey(), key -> new Node()), entry.getValue());
+      } // for
+    } // if
+    if (source.any != null) {
+      if (target.any == null) {
+        target.any = new Node();
+      } // if
+      merge(target.any, source.any);
+    } // if
+    if (source.indexes != null) {
+      if (target.indexes == null) {
+        target.indexes = new HashMap<>();
+      } // if
+      for (Map.Entry<Integer, Node> entry : source.indexes.entrySet()) {
+        merge(target.indexes.computeIfAbsent(entry.getKey(), key -> new Node()), entry.getValue());
+      } // for
+    } // if
+  } // merge(Node, Node)
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * One step of the paths, with the steps that may follow it.
+   */
+  static class Node {
+    /**
+     * Whether a path ends here, selecting everything below.
+     */
+    boolean all;
+
+    /**
+     * The steps for object members, for any element, and for particular
+     * elements.
+     */
+    Map<String, Node> fields;
+    Node any;
+    Map<Integer, Node> indexes;
+
+    /**
+     * Determine whether a value starting with ch should be read.
+     */
+    boolean fits(int ch) {
+      if (this.all) {
+        return true;
+      } else if (ch == '{') {
+        return this.fields != null;
+      } else if (ch == '[') {
+        return (this.any != null) || (this.indexes != null);
+      } // if/else
+      return false;
+    } // fits(int)
+
+    /**
+     * The step for a member of an object, or null to skip it.
+     */
+    Node field(String key) {
+      if (this.all) {
+        return this;
+      } // if
+      return (this.fields == null) ? null : this.fields.get(key);
+    } // field(String)
+
+    /**
+     * The step for an element of an array, or null to skip it.
+     */
+    Node element(int index) {
+      if (this.all) {
+        return this;
+      } // if
+      if (this.indexes != null) {
+        Node node = this.indexes.get(index);
+        if (node != null) {
+          return node;
+        } // if
+      } // if
+      return this.any;
+    } // element(int)
+  } // class Node
+
+} // class JSONProjection
@@ -0,0 +1,752 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compiled JSON Schemas.
+ *
+ * Supports a practical subset of draft 2020-12: type, enum, const,
+ * minimum, maximum, exclusiveMinimum, exclusiveMaximum, minLength,
+ * maxLength, pattern, items, minItems, maxItems, properties, required,
+ * additionalProperties, minProperties, and maxProperties, plus the
+ * boolean schemas true and false.  Other keywords are ignored.
+ *
+ * A schema is compiled once and can then check either a tree (validate)
+ * or a stream of parse events (validator), stopping at the first
+ * violation.  Violations are reported as ParseExceptions whose message
+ * includes the JSON pointer of the offending value.
+ */
+public class JSONSchema {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  static final int OBJECT = 1;
+  static final int ARRAY = 2;
+  static final int STRING = 4;
+  static final int NUMBER = 8;
+  static final int INTEGER = 16;
+  static final int BOOLEAN = 32;
+  static final int NULL = 64;
+
+  /**
+   * The names of the types, in bit order.
+   */
+  static final String[] TYPE_NAMES =
+      {"object", "array", "string", "number", "integer", "boolean", "null"};
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Whether this is the schema false, which nothing matches.
+   */
+  boolean rejectAll;
+
+  /**
+   * The allowed types, as a bit set, or 0 for any type.
+   */
+  int types;
+
+  /**
+   * The canonical forms (see JSONCanonical) of the allowed values, or null.
+   */
+  HashSet<String> enumValues;
+
+  BigDecimal minimum;
+  BigDecimal maximum;
+  BigDecimal exclusiveMinimum;
+  BigDecimal exclusiveMaximum;
+
+  int minLength;
+  int maxLength;
+  Pattern pattern;
+
+  /**
+   * The schema for array elements, or null for any.
+   */
+  JSONSchema items;
+  int minItems;
+  int maxItems;
+
+  /**
+   * The schemas for named properties, or null if there are none.
+   */
+  HashMap<String, JSONSchema> properties;
+
+  /**
+   * The schema for other properties, or null for any.
+   */
+  JSONSchema additionalProperties;
+
+  /**
+   * The position of each required property in the list of them, or null.
+   */
+  HashMap<String, Integer> required;
+  int minProperties;
+  int maxProperties;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a schema that accepts anything.
+   */
+  private JSONSchema() {
+    this.maxLength = Integer.MAX_VALUE;
+    this.maxItems = Integer.MAX_VALUE;
+    this.maxProperties = Integer.MAX_VALUE;
+  } // JSONSchema()
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Compile a schema.  Throws an IllegalArgumentException if the schema
+   * itself is malformed.
+   */
+  public static JSONSchema compile(JSONValue schema) {
+    JSONSchema result = new JSONSchema();
+    if (JSONConstant.TRUE.equals(schema)) {
+      return result;
+    } else if (JSONConstant.FALSE.equals(schema)) {
+      result.rejectAll = true;
+      return result;
+    } else if (!(schema instanceof JSONHash)) {
+      throw new IllegalArgumentException("A schema must be an object or a boolean");
+    } // if/else
+
+    JSONHash hash = (JSONHash) schema;
+    JSONValue type = hash.get(new JSONString("type"));
+    if (type instanceof JSONArray) {
+      for (JSONValue name : ((JSONArray) type).getValue()) {
+        result.types |= typeBit(name);
+      } // for
+    } else if (type != null) {
+      result.types = typeBit(type);
+    } // if/else
+
+    JSONValue values = hash.get(new JSONString("enum"));
+    if (values != null) {
+      if (!(values instanceof JSONArray)) {
+        throw new IllegalArgumentException("\"enum\" must be an array");
+      } // if
+      result.enumValues = new HashSet<String>();
+      for (JSONValue value : ((JSONArray) values).getValue()) {
+        result.enumValues.add(JSONCanonical.toString(value));
+      } // for
+    } // if
+    JSONValue constant = hash.get(new JSONString("const"));
+    if (constant != null) {
+      // Both must hold, so const narrows any enum to at most one value.
+      String canonical = JSONCanonical.toString(constant);
+      boolean allowed = (result.enumValues == null) || result.enumValues.contains(canonical);
+      result.enumValues = new HashSet<String>();
+      if (allowed) {
+        result.enumValues.add(canonical);
+      } // if
+    } // if
+
+    result.minimum = decimal(hash, "minimum");
+    result.maximum = decimal(hash, "maximum");
+    result.exclusiveMinimum = decimal(hash, "exclusiveMinimum");
+    result.exclusiveMaximum = decimal(hash, "exclusiveMaximum");
+
+    result.minLength = count(hash, "minLength", 0);
+    result.maxLength = count(hash, "maxLength", Integer.MAX_VALUE);
+    JSONValue pattern = hash.get(new JSONString("pattern"));
+    if (pattern != null) {
+      if (!(pattern instanceof JSONString)) {
+        throw new IllegalArgumentException("\"pattern\" must be a string");
+      } // if
+      try {
+        result.pattern = Pattern.compile(((JSONString) pattern).getValue());
+      } catch (PatternSyntaxException e) {
+        throw new IllegalArgumentException("Invalid pattern: " + e.getMessage());
+      } // try/catch
+    } // if
+
+    JSONValue items = hash.get(new JSONString("items"));
+    if (items != null) {
+      result.items = compile(items);
+    } // if
+    result.minItems = count(hash, "minItems", 0);
+    result.maxItems = count(hash, "maxItems", Integer.MAX_VALUE);
+
+    JSONValue properties = hash.get(new JSONString("properties"));
+    if (properties != null) {
+      if (!(properties instanceof JSONHash)) {
+        throw new IllegalArgumentException("\"properties\" must be an object");
+      } // if
+      result.properties = new HashMap<String, JSONSchema>();
+      for (KVPair<JSONString, JSONValue> pair : (JSONHash) properties) {
+        result.properties.put(pair.key().getValue(), compile(pair.value()));
+      } // for
+    } // if
+    JSONValue additional = hash.get(new JSONString("additionalProperties"));
+    if (additional != null) {
+      result.additionalProperties = compile(additional);
+    } // if
+    JSONValue required = hash.get(new JSONString("required"));
+    if (required != null) {
+      if (!(required instanceof JSONArray)) {
+        throw new IllegalArgumentException("\"required\" must be an array");
+      } // if
+      result.required = new HashMap<String, Integer>();
+      for (JSONValue name : ((JSONArray) required).getValue()) {
+        if (!(name instanceof JSONString)) {
+          throw new IllegalArgumentException("\"required\" must contain strings");
+        } // if
+        result.required.putIfAbsent(((JSONString) name).getValue(), result.required.size());
+      } // for
+    } // if
+    result.minProperties = count(hash, "minProperties", 0);
+    result.maxProperties = count(hash, "maxProperties", Integer.MAX_VALUE);
+    return result;
+  } // compile(JSONValue)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Check a tree against this schema, throwing a ParseException that
+   * describes the first violation.
+   */
+  public void validate(JSONValue value) throws ParseException {
+    ArrayList<Object> path = new ArrayList<Object>();
+    String error = check(value, path);
+    if (error != null) {
+      throw new ParseException(error + " at " + pointer(path, path.size()), 0);
+    } // if
+  } // validate(JSONValue)
+
+  /**
+   * Determine whether a tree matches this schema.
+   */
+  public boolean matches(JSONValue value) {
+    return check(value, new ArrayList<Object>()) == null;
+  } // matches(JSONValue)
+
+  /**
+   * Make a handler that checks parse events against this schema and passes
+   * each one on to next (which may be null) once it has been checked.
+   * Use one validator per parse.
+   */
+  public JSONHandler validator(JSONHandler next) {
+    return new Validator(this, next);
+  } // validator(JSONHandler)
+
+  // +---------------+-----------------------------------------------
+  // | Tree checking |
+  // +---------------+
+
+  /**
+   * Check a tree, returning a description of the first violation (with
+   * path left pointing at it) or null if there is none.
+   */
+  String check(JSONValue value, ArrayList<Object> path) {
+    String error = checkValue(value);
+    if (error != null) {
+      return error;
+    } else if (value instanceof JSONArray) {
+      JSONArray array = (JSONArray) value;
+      error = checkSize(array.size(), this.minItems, this.maxItems, "items");
+      if (error != null) {
+        return error;
+      } // if
+      if (this.items != null) {
+        for (int i = 0; i < array.size(); i++) {
+          path.add(i);
+          error = this.items.check(array.get(i), path);
+          if (error != null) {
+            return error;
+          } // if
+          path.remove(path.size() - 1);
+        } // for
+      } // if
+    } else if (value instanceof JSONHash) {
+      JSONHash hash = (JSONHash) value;
+      error = checkSize(hash.size(), this.minProperties, this.maxProperties, "properties");
+      if (error != null) {
+        return error;
+      } // if
+      if (this.required != null) {
+        for (String name : this.required.keySet()) {
+          if (hash.get(new JSONString(name)) == null) {
+            return "Missing required property \"" + name + "\"";
+          } // if
+        } // for
+      } // if
+      for (KVPair<JSONString, JSONValue> pair : hash) {
+        path.add(pair.key().getValue());
+        JSONSchema schema = propertySchema(pair.key().getValue());
+        if ((schema != null) && schema.rejectAll) {
+          return "Property \"" + pair.key().getValue() + "\" is not allowed";
+        } else if (schema != null) {
+          error = schema.check(pair.value(), path);
+          if (error != null) {
+            return error;
+          } // if
+        } // if
+        path.remove(path.size() - 1);
+      } // for
+    } // if/else
+    return null;
+  } // check(JSONValue, ArrayList<Object>)
+
+  // +----------------+----------------------------------------------
+  // | Shared helpers |
+  // +----------------+
+
+  /**
+   * Check the constraints that apply to a value on its own, without
+   * looking inside containers (other than for enum).
+   */
+  String checkValue(JSONValue value) {
+    if (this.rejectAll) {
+      return "No value is allowed";
+    } // if
+    String error = checkType(typeBits(value));
+    if (error != null) {
+      return error;
+    } // if
+    if ((this.enumValues != null) && !this.enumValues.contains(JSONCanonical.toString(value))) {
+      return "Value is not one of the allowed values";
+    } // if
+    if (value instanceof JSONString) {
+      return checkString(((JSONString) value).getValue());
+    } else if (value instanceof JSONInteger) {
+      return checkNumber(new BigDecimal(((JSONInteger) value).getValue()));
+    } else if (value instanceof JSONReal) {
+      return checkNumber(((JSONReal) value).getValue());
+    } // if/else
+    return null;
+  } // checkValue(JSONValue)
+
+  /**
+   * Check that a value with the given type bits is allowed.
+   */
+  String checkType(int bits) {
+    if ((this.types == 0) || ((this.types & bits) != 0)) {
+      return null;
+    } // if
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < TYPE_NAMES.length; i++) {
+      if ((this.types & (1 << i)) != 0) {
+        expected.append((expected.length() == 0) ? "" : " or ").append(TYPE_NAMES[i]);
+      } // if
+    } // for
+    return "Expected " + expected;
+  } // checkType(int)
+
+  /**
+   * Check the string constraints.
+   */
+  String checkString(String str) {
+    if ((this.minLength > 0) || (this.maxLength < Integer.MAX_VALUE)) {
+      String error = checkSize(str.codePointCount(0, str.length()),
+          this.minLength, this.maxLength, "characters");
+      if (error != null) {
+        return error;
+      } // if
+    } // if
+    if ((this.pattern != null) && !this.pattern.matcher(str).find()) {
+      return "String does not match pattern " + this.pattern.pattern();
+    } // if
+    return null;
+  } // checkString(String)
+
+  /**
+   * Check the number constraints.
+   */
+  String checkNumber(BigDecimal number) {
+    if ((this.minimum != null) && (number.compareTo(this.minimum) < 0)) {
+      return "Number is less than " + this.minimum;
+    } else if ((this.maximum != null) && (number.compareTo(this.maximum) > 0)) {
+      return "Number is greater than " + this.maximum;
+    } else if ((this.exclusiveMinimum != null) && (number.compareTo(this.exclusiveMinimum) <= 0)) {
+      return "Number is not greater than " + this.exclusiveMinimum;
+    } else if ((this.exclusiveMaximum != null) && (number.compareTo(this.exclusiveMaximum) >= 0)) {
+      return "Number is not less than " + this.exclusiveMaximum;
+    } // if/else
+    return null;
+  } // checkNumber(BigDecimal)
+
+  /**
+   * Check a count against its bounds.
+   */
+  static String checkSize(int size, int min, int max, String what) {
+    if (size < min) {
+      return "Expected at least " + min + " " + what;
+    } else if (size > max) {
+      return "Expected at most " + max + " " + what;
+    } // if/else
+    return null;
+  } // checkSize(int, int, int, String)
+
+  /**
+   * Find the schema for a property, or null if any value is allowed.
+   */
+  JSONSchema propertySchema(String name) {
+    if (this.properties != null) {
+      JSONSchema schema = this.properties.get(name);
+      if (schema != null) {
+        return schema;
+      } // if
+    } // if
+    return this.additionalProperties;
+  } // propertySchema(String)
+
+  /**
+   * Determine which type bits a value has.  Integral numbers are both
+   * numbers and integers.
+   */
+  static int typeBits(JSONValue value) {
+    if (value instanceof JSONHash) {
+      return OBJECT;
+    } else if (value instanceof JSONArray) {
+      return ARRAY;
+    } else if (value instanceof JSONString) {
+      return STRING;
+    } else if (value instanceof JSONInteger) {
+      return NUMBER | INTEGER;
+    } else if (value instanceof JSONReal) {
+      BigDecimal real = ((JSONReal) value).getValue();
+      return ((real.signum() == 0) || (real.stripTrailingZeros().scale() <= 0))
+          ? NUMBER | INTEGER : NUMBER;
+    } else if (JSONConstant.NULL.equals(value)) {
+      return NULL;
+    } else {
+      return BOOLEAN;
+    } // if/else
+  } // typeBits(JSONValue)
+
+  /**
+   * Convert the first n segments of a path to a JSON pointer.
+   */
+  static String pointer(ArrayList<Object> path, int n) {
+    if (n == 0) {
+      return "the root";
+    } // if
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < n; i++) {
+      result.append('/').append(JSONPatch.escape(path.get(i).toString()));
+    } // for
+    return result.toString();
+  } // pointer(ArrayList<Object>, int)
+
+  // +-----------------+---------------------------------------------
+  // | Compile helpers |
+  // +-----------------+
+
+  /**
+   * Convert a type name to its bit.
+   */
+  static int typeBit(JSONValue name) {
+    for (int i = 0; i < TYPE_NAMES.length; i++) {
+      if (new JSONString(TYPE_NAMES[i]).equals(name)) {
+        return 1 << i;
+      } // if
+    } // for
+    throw new IllegalArgumentException("Unknown type " + name);
+  } // typeBit(JSONValue)
+
+  /**
+   * Get an optional numeric keyword.
+   */
+  static BigDecimal decimal(JSONHash schema, String keyword) {
+    JSONValue value = schema.get(new JSONString(keyword));
+    if (value == null) {
+      return null;
+    } else if (value instanceof JSONInteger) {
+      return new BigDecimal(((JSONInteger) value).getValue());
+    } else if (value instanceof JSONReal) {
+      return ((JSONReal) value).getValue();
+    } // if/else
+    throw new IllegalArgumentException("\"" + keyword + "\" must be a number");
+  } // decimal(JSONHash, String)
+
+  /**
+   * Get an optional non-negative integer keyword.
+   */
+  static int count(JSONHash schema, String keyword, int otherwise) {
+    JSONValue value = schema.get(new JSONString(keyword));
+    if (value == null) {
+      return otherwise;
+    } else if (!(value instanceof JSONInteger) || (((JSONInteger) value).getValue().signum() < 0)) {
+      throw new IllegalArgumentException("\"" + keyword + "\" must be a non-negative integer");
+    } // if/else
+    BigInteger count = ((JSONInteger) value).getValue();
+    return (count.bitLength() < 32) ? count.intValue() : Integer.MAX_VALUE;
+  } // count(JSONHash, String, int)
+
+  // +-----------------+---------------------------------------------
+  // | Stream checking |
+  // +-----------------+
+
+  /**
+   * Checks parse events against a schema.  Each open container has a
+   * frame holding its schema (null if anything goes), its member count,
+   * and which required properties have been seen.
+   */
+  static class Validator implements JSONHandler {
+
+    /**
+     * The schema for the whole document.
+     */
+    JSONSchema root;
+
+    /**
+     * Where checked events go, or null.
+     */
+    JSONHandler next;
+
+    /**
+     * The schema of each open container.
+     */
+    ArrayList<JSONSchema> schemas;
+
+    /**
+     * The number of elements or members seen in each open container.
+     */
+    ArrayList<Integer> counts;
+
+    /**
+     * The required properties seen in each open object.
+     */
+    ArrayList<boolean[]> seen;
+
+    /**
+     * The key or index of the current child of each open container.
+     */
+    ArrayList<Object> path;
+
+    /**
+     * The schema of the value after the most recent key.
+     */
+    JSONSchema pending;
+
+    /**
+     * Copies of the open containers that must match an enum, with the
+     * depth each one started at.
+     */
+    ArrayList<JSONTreeBuilder> buffers;
+    ArrayList<Integer> bufferDepths;
+
+    /**
+     * Set up to check a document.
+     */
+    Validator(JSONSchema root, JSONHandler next) {
+      this.root = root;
+      this.next = next;
+      this.schemas = new ArrayList<JSONSchema>();
+      this.counts = new ArrayList<Integer>();
+      this.seen = new ArrayList<boolean[]>();
+      this.path = new ArrayList<Object>();
+      this.buffers = new ArrayList<JSONTreeBuilder>();
+      this.bufferDepths = new ArrayList<Integer>();
+    } // Validator(JSONSchema, JSONHandler)
+
+    public void startObject() throws ParseException {
+      JSONSchema schema = nextSchema();
+      if (schema != null) {
+        fail(schema.rejectAll ? "No value is allowed" : schema.checkType(OBJECT), depth());
+      } // if
+      open(schema, false);
+      this.seen.set(depth() - 1,
+          ((schema != null) && (schema.required != null)) ? new boolean[schema.required.size()] : null);
+      for (JSONTreeBuilder buffer : this.buffers) {
+        buffer.startObject();
+      } // for
+      if (this.next != null) {
+        this.next.startObject();
+      } // if
+    } // startObject()
+
+    public void key(JSONString key) throws ParseException {
+      int top = depth() - 1;
+      String name = key.getValue();
+      this.path.set(top, name);
+      int count = this.counts.get(top) + 1;
+      this.counts.set(top, count);
+      JSONSchema schema = this.schemas.get(top);
+      this.pending = null;
+      if (schema != null) {
+        fail(checkSize(count, 0, schema.maxProperties, "properties"), top);
+        this.pending = schema.propertySchema(name);
+        if ((this.pending != null) && this.pending.rejectAll) {
+          fail("Property \"" + name + "\" is not allowed", depth());
+        } // if
+        if (schema.required != null) {
+          Integer index = schema.required.get(name);
+          if (index != null) {
+            this.seen.get(top)[index] = true;
+          } // if
+        } // if
+      } // if
+      for (JSONTreeBuilder buffer : this.buffers) {
+        buffer.key(key);
+      } // for
+      if (this.next != null) {
+        this.next.key(key);
+      } // if
+    } // key(JSONString)
+
+    public void endObject() throws ParseException {
+      int top = depth() - 1;
+      JSONSchema schema = this.schemas.get(top);
+      if (schema != null) {
+        fail(checkSize(this.counts.get(top), schema.minProperties, Integer.MAX_VALUE, "properties"), top);
+        boolean[] found = this.seen.get(top);
+        if (found != null) {
+          for (String name : schema.required.keySet()) {
+            if (!found[schema.required.get(name)]) {
+              fail("Missing required property \"" + name + "\"", top);
+            } // if
+          } // for
+        } // if
+      } // if
+      for (JSONTreeBuilder buffer : this.buffers) {
+        buffer.endObject();
+      } // for
+      close(schema);
+      if (this.next != null) {
+        this.next.endObject();
+      } // if
+    } // endObject()
+
+    public void startArray() throws ParseException {
+      JSONSchema schema = nextSchema();
+      if (schema != null) {
+        fail(schema.rejectAll ? "No value is allowed" : schema.checkType(ARRAY), depth());
+      } // if
+      open(schema, true);
+      for (JSONTreeBuilder buffer : this.buffers) {
+        buffer.startArray();
+      } // for
+      if (this.next != null) {
+        this.next.startArray();
+      } // if
+    } // startArray()
+
+    public void endArray() throws ParseException {
+      int top = depth() - 1;
+      JSONSchema schema = this.schemas.get(top);
+      if (schema != null) {
+        fail(checkSize(this.counts.get(top), schema.minItems, Integer.MAX_VALUE, "items"), top);
+      } // if
+      for (JSONTreeBuilder buffer : this.buffers) {
+        buffer.endArray();
+      } // for
+      close(schema);
+      if (this.next != null) {
+        this.next.endArray();
+      } // if
+    } // endArray()
+
+    public void value(JSONValue value) throws ParseException {
+      JSONSchema schema = nextSchema();
+      if (schema != null) {
+        fail(schema.checkValue(value), depth());
+      } // if
+      for (JSONTreeBuilder buffer : this.buffers) {
+        buffer.value(value);
+      } // for
+      if (this.next != null) {
+        this.next.value(value);
+      } // if
+    } // value(JSONValue)
+
+    /**
+     * Find the schema for the value that is starting, counting it if it is
+     * an array element.
+     */
+    JSONSchema nextSchema() throws ParseException {
+      int top = depth() - 1;
+      if (top < 0) {
+        return this.root;
+      } // if
+      JSONSchema schema = this.schemas.get(top);
+      if (isArray(top)) {
+        int index = this.counts.get(top);
+        this.path.set(top, index);
+        this.counts.set(top, index + 1);
+        if (schema == null) {
+          return null;
+        } // if
+        fail(checkSize(index + 1, 0, schema.maxItems, "items"), top);
+        return schema.items;
+      } // if
+      return this.pending;
+    } // nextSchema()
+
+    /**
+     * Determine whether an open container is an array.
+     */
+    boolean isArray(int level) {
+      return this.path.get(level) instanceof Integer;
+    } // isArray(int)
+
+    /**
+     * Push a frame for a new container.  The path entry of an array is
+     * always an index and that of an object never is.
+     */
+    void open(JSONSchema schema, boolean array) {
+      this.schemas.add(schema);
+      this.counts.add(0);
+      this.seen.add(null);
+      this.path.add(array ? Integer.valueOf(-1) : null);
+      if ((schema != null) && (schema.enumValues != null)) {
+        this.buffers.add(new JSONTreeBuilder());
+        this.bufferDepths.add(depth());
+      } // if
+    } // open(JSONSchema, boolean)
+
+    /**
+     * Pop the frame of a container that has ended, checking its enum.
+     */
+    void close(JSONSchema schema) throws ParseException {
+      int last = this.buffers.size() - 1;
+      if ((last >= 0) && (this.bufferDepths.get(last) == depth())) {
+        JSONValue value = this.buffers.remove(last).result();
+        this.bufferDepths.remove(last);
+        if (!schema.enumValues.contains(JSONCanonical.toString(value))) {
+          fail("Value is not one of the allowed values", depth() - 1);
+        } // if
+      } // if
+      int top = depth() - 1;
+      this.schemas.remove(top);
+      this.counts.remove(top);
+      this.seen.remove(top);
+      this.path.remove(top);
+    } // close(JSONSchema)
+
+    /**
+     * The number of open containers.
+     */
+    int depth() {
+      return this.schemas.size();
+    } // depth()
+
+    /**
+     * Throw if there is an error, describing the value at the given depth.
+     */
+    void fail(String error, int level) throws ParseException {
+      if (error != null) {
+        throw new ParseException(error + " at " + pointer(this.path, level), -1);
+      } // if
+    } // fail(String, int)
+
+  } // class Validator
+
+} // class JSONSchema
@@ -5,6 +5,39 @@ import java.io.PrintWriter;
  */
 public class JSONString implements JSONValue {
 
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The escape sequence for each character below 128 that needs one,
+   * and null for the rest.  Only quotes, backslashes, and control
+   * characters need one, plus lone surrogates (see escape); everything
+   * else is written as is.
+   */
+  static final String[] ESCAPES = new String[128];
+
+  /**
+   * Which ASCII characters have an entry in ESCAPES.
+   */
+  static final boolean[] ESCAPED = new boolean[128];
+
+  static {
+    for (int ch = 0; ch < 0x20; ch++) {
+      ESCAPES[ch] = String.format("\\u%04x", ch);
+    } // for
+    ESCAPES['"'] = "\\\"";
+    ESCAPES['\\'] = "\\\\";
+    ESCAPES['\b'] = "\\b";
+    ESCAPES['\f'] = "\\f";
+    ESCAPES['\n'] = "\\n";
+    ESCAPES['\r'] = "\\r";
+    ESCAPES['\t'] = "\\t";
+    for (int ch = 0; ch < 128; ch++) {
+      ESCAPED[ch] = (ESCAPES[ch] != null);
+    } // for
+  } // static
+
   // +--------+------------------------------------------------------
   // | Fields |
   // +--------+
@@ -33,8 +66,10 @@ public class JSONString implements JSONValue {
    * Convert to a string (e.g., for printing).
    */
   public String toString() {
-    return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
-}
+    StringBuilder result = new StringBuilder(this.value.length() + 16);
+    appendQuoted(result, this.value);
+    return result.toString();
+  } // toString()
 
   /**
    * Compare to another object.
@@ -65,9 +100,17 @@ public class JSONString implements JSONValue {
    * Write the value as JSON.
    */
   public void writeJSON(PrintWriter pen) {
-    pen.print("\"");
-    pen.print(value.replace("\\", "\\\\").replace("\"", "\\\""));
-    pen.print("\"");
+    String str = this.value;
+    int n = str.length();
+    pen.write('"');
+    int start = 0;
+    for (int i = nextEscape(str, 0, n); i < n; i = nextEscape(str, start, n)) {
+      pen.write(str, start, i - start);
+      pen.write(escape(str.charAt(i)));
+      start = i + 1;
+    } // for
+    pen.write(str, start, n - start);
+    pen.write('"');
   } // writeJSON(PrintWriter)
 
   /**
@@ -77,4 +120,65 @@ public class JSONString implements JSONValue {
     return this.value;
   } // getValue()
 
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Append str to result in quotes, escaped in a single pass.  The runs
+   * between escapes are appended straight from str.
+   */
+  static void appendQuoted(StringBuilder result, String str) {
+    int n = str.length();
+    result.append('"');
+    int start = 0;
+    for (int i = nextEscape(str, 0, n); i < n; i = nextEscape(str, start, n)) {
+      result.append(str, start, i).append(escape(str.charAt(i)));
+      start = i + 1;
+    } // for
+    if (start == 0) {
+      result.append(str);
+    } else {
+      result.append(str, start, n);
+    } // if/else
+    result.append('"');
+  } // appendQuoted(StringBuilder, String)
+
+  /**
+   * Find the first character of str from start (inclusive) to end
+   * (exclusive) that needs an escape, or end if there is none.  This is
+   * the one place that decides what gets escaped; every writer scans with
+   * it and then writes escape(ch) for the character found.
+   *
+   * Besides the characters in ESCAPES, a surrogate that is not half of a
+   * pair needs an escape: it has no UTF-8 form, so a charset encoder
+   * would turn it into '?', and writing \\uXXXX keeps it intact whatever
+   * the output encoding.
+   */
+  static int nextEscape(CharSequence str, int start, int end) {
+    boolean[] escaped = ESCAPED;
+    for (int i = start; i < end; i++) {
+      char ch = str.charAt(i);
+      // Masking first keeps the table lookup free of a branch.
+      if (escaped[ch & 0x7f] && (ch < 0x80)) {
+        return i;
+      } else if (Character.isSurrogate(ch)) {
+        if (Character.isHighSurrogate(ch) && (i + 1 < end)
+            && Character.isLowSurrogate(str.charAt(i + 1))) {
+          i++;
+        } else {
+          return i;
+        } // if/else
+      } // if/else
+    } // for
+    return end;
+  } // nextEscape(CharSequence, int, int)
+
+  /**
+   * The escape for a character found by nextEscape.
+   */
+  static String escape(char ch) {
+    return (ch < 0x80) ? ESCAPES[ch] : "\\u" + Integer.toHexString(ch);
+  } // escape(char)
+
 } // class JSONString
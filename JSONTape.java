@@ -0,0 +1,573 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * A read-only parsed document stored off the heap as a flat "tape" of
+ * tagged 64-bit words plus a buffer of UTF-8 strings, in the style of
+ * simdjson.  Navigate it with a Cursor; JSONValue objects are only made
+ * when asked for (Cursor.toJSONValue).
+ *
+ * Each value is one word whose top byte is a tag and whose low 56 bits
+ * are a payload:
+ *
+ *   '{' / '['  bits 0-31: the word index just past the matching close;
+ *              bits 32-55: the member/element count (saturating)
+ *   '}' / ']'  the word index of the matching open
+ *   '"'        the offset of the string in the string buffer
+ *   'l'        a long, stored whole in the next word
+ *   'n'        a number that is not a long, as text in the string buffer
+ *   't', 'f', 'N' true, false, null
+ *
+ * An object's words are '{', then key and value for each member, then
+ * '}'.  Strings are stored as a 4-byte length followed by UTF-8 bytes.
+ * Both buffers are direct ByteBuffers, so the document is invisible to
+ * the garbage collector apart from two small objects; the memory is
+ * released when the tape becomes unreachable.  A tape holds up to 2 GB
+ * of words and 2 GB of strings.
+ */
+public class JSONTape {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  static final int SATURATED = 0xFFFFFF;
+
+  /**
+   * The largest buffer a tape uses: the largest multiple of 8 (one
+   * word) that a ByteBuffer can hold, just under 2 GB.
+   */
+  static final int MAX_CAPACITY = Integer.MAX_VALUE & ~7;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The words, in native byte order.
+   */
+  final ByteBuffer words;
+
+  /**
+   * The strings.
+   */
+  final ByteBuffer strings;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Wrap finished buffers.
+   */
+  JSONTape(ByteBuffer words, ByteBuffer strings) {
+    this.words = words;
+    this.strings = strings;
+  } // JSONTape(ByteBuffer, ByteBuffer)
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Parse a string into a tape.
+   */
+  public static JSONTape parse(String source) throws ParseException, IOException {
+    return parse(new StringReader(source));
+  } // parse(String)
+
+  /**
+   * Parse JSON from a reader into a tape.
+   */
+  public static JSONTape parse(Reader source) throws ParseException, IOException {
+    Builder builder = new Builder();
+    JSON.parse(source, builder);
+    return builder.finish();
+  } // parse(Reader)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Get a cursor on the top-level value.
+   */
+  public Cursor root() {
+    return new Cursor(this, 0, false);
+  } // root()
+
+  /**
+   * The number of off-heap bytes the tape uses.
+   */
+  public long sizeInBytes() {
+    return (long) this.words.capacity() + this.strings.capacity();
+  } // sizeInBytes()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Get a word.
+   */
+  long word(int index) {
+    return this.words.getLong(index << 3);
+  } // word(int)
+
+  /**
+   * Get the tag of a word.
+   */
+  int tag(int index) {
+    return (int) (word(index) >>> 56);
+  } // tag(int)
+
+  /**
+   * Find the index of the value after the one at index.
+   */
+  int after(int index) {
+    long word = word(index);
+    switch ((int) (word >>> 56)) {
+      case '{': case '[': return (int) word;
+      case 'l': return index + 2;
+      default: return index + 1;
+    } // switch
+  } // after(int)
+
+  /**
+   * Decode the string whose word is at index.
+   */
+  String string(int index) {
+    int offset = (int) (word(index) & 0xFFFFFFFFFFFFFFL);
+    int length = this.strings.getInt(offset);
+    byte[] bytes = new byte[length];
+    this.strings.get(offset + 4, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  } // string(int)
+
+  /**
+   * Determine whether the string whose word is at index has these UTF-8
+   * bytes, without decoding it.
+   */
+  boolean stringEquals(int index, byte[] bytes) {
+    int offset = (int) (word(index) & 0xFFFFFFFFFFFFFFL);
+    if (this.strings.getInt(offset) != bytes.length) {
+      return false;
+    } // if
+    for (int i = 0; i < bytes.length; i++) {
+      if (this.strings.get(offset + 4 + i) != bytes[i]) {
+        return false;
+      } // if
+    } // for
+    return true;
+  } // stringEquals(int, byte[])
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * A position on a tape.  Cursors are small and immutable; navigating
+   * makes new ones.
+   */
+  public static class Cursor {
+
+    /**
+     * The tape.
+     */
+    final JSONTape tape;
+
+    /**
+     * The index of the value's first word.
+     */
+    final int index;
+
+    /**
+     * Whether the value belongs to an object, so the word before it is
+     * its key.
+     */
+    final boolean member;
+
+    /**
+     * Point at a value.
+     */
+    Cursor(JSONTape tape, int index, boolean member) {
+      this.tape = tape;
+      this.index = index;
+      this.member = member;
+    } // Cursor(JSONTape, int, boolean)
+
+    public boolean isObject() {
+      return this.tape.tag(this.index) == '{';
+    } // isObject()
+
+    public boolean isArray() {
+      return this.tape.tag(this.index) == '[';
+    } // isArray()
+
+    public boolean isString() {
+      return this.tape.tag(this.index) == '"';
+    } // isString()
+
+    public boolean isNumber() {
+      int tag = this.tape.tag(this.index);
+      return (tag == 'l') || (tag == 'n');
+    } // isNumber()
+
+    public boolean isBoolean() {
+      int tag = this.tape.tag(this.index);
+      return (tag == 't') || (tag == 'f');
+    } // isBoolean()
+
+    public boolean isNull() {
+      return this.tape.tag(this.index) == 'N';
+    } // isNull()
+
+    /**
+     * The number of members or elements of an object or array.
+     */
+    public int size() {
+      long word = this.tape.word(this.index);
+      int count = (int) ((word >>> 32) & SATURATED);
+      if (count < SATURATED) {
+        return count;
+      } // if
+      count = 0;
+      for (Cursor child = first(); child != null; child = child.next()) {
+        count++;
+      } // for
+      return count;
+    } // size()
+
+    /**
+     * Get an array element, or null if there is none.  Takes time
+     * proportional to index, since elements are skipped one by one.
+     */
+    public Cursor get(int index) {
+      requireTag('[');
+      Cursor child = first();
+      for (int i = 0; (i < index) && (child != null); i++) {
+        child = child.next();
+      } // for
+      return (index < 0) ? null : child;
+    } // get(int)
+
+    /**
+     * Get the value of an object member, or null if there is none.  Keys
+     * are compared as UTF-8 bytes, without decoding them.  If the key
+     * appears more than once, the last value wins, as in toJSONValue and
+     * JSON.parse.
+     */
+    public Cursor get(String key) {
+      requireTag('{');
+      byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+      int end = (int) this.tape.word(this.index) - 1;
+      int i = this.index + 1;
+      int found = -1;
+      while (i < end) {
+        if (this.tape.stringEquals(i, bytes)) {
+          found = i + 1;
+        } // if
+        i = this.tape.after(i + 1);
+      } // while
+      return (found < 0) ? null : new Cursor(this.tape, found, true);
+    } // get(String)
+
+    /**
+     * Get the first element of an array or the first member value of an
+     * object, or null if it is empty.
+     */
+    public Cursor first() {
+      int tag = this.tape.tag(this.index);
+      if ((tag != '[') && (tag != '{')) {
+        throw new IllegalStateException("Not an object or array");
+      } // if
+      int i = this.index + ((tag == '{') ? 2 : 1);
+      return (i < (int) this.tape.word(this.index) - 1) ? new Cursor(this.tape, i, tag == '{') : null;
+    } // first()
+
+    /**
+     * Get the next element or member value in the enclosing array or
+     * object, or null after the last one.
+     */
+    public Cursor next() {
+      if (this.index == 0) {
+        return null;
+      } // if
+      int i = this.tape.after(this.index);
+      int tag = this.tape.tag(i);
+      if ((tag == ']') || (tag == '}')) {
+        return null;
+      } // if
+      return new Cursor(this.tape, this.member ? i + 1 : i, this.member);
+    } // next()
+
+    /**
+     * The key of a member value reached by first, next, or get(String).
+     */
+    public String key() {
+      if (!this.member) {
+        throw new IllegalStateException("Not an object member");
+      } // if
+      return this.tape.string(this.index - 1);
+    } // key()
+
+    public String stringValue() {
+      requireTag('"');
+      return this.tape.string(this.index);
+    } // stringValue()
+
+    public boolean booleanValue() {
+      if (!isBoolean()) {
+        throw new IllegalStateException("Not a boolean");
+      } // if
+      return this.tape.tag(this.index) == 't';
+    } // booleanValue()
+
+    /**
+     * The value of an integer that fits in a long.
+     */
+    public long longValue() {
+      if (this.tape.tag(this.index) == 'l') {
+        return this.tape.word(this.index + 1);
+      } // if
+      return bigDecimalValue().longValueExact();
+    } // longValue()
+
+    public double doubleValue() {
+      if (this.tape.tag(this.index) == 'l') {
+        return this.tape.word(this.index + 1);
+      } // if
+      return Double.parseDouble(numberText());
+    } // doubleValue()
+
+    public BigDecimal bigDecimalValue() {
+      if (this.tape.tag(this.index) == 'l') {
+        return BigDecimal.valueOf(this.tape.word(this.index + 1));
+      } // if
+      return new BigDecimal(numberText());
+    } // bigDecimalValue()
+
+    /**
+     * Make JSONValue objects for this value and everything in it.
+     */
+    public JSONValue toJSONValue() {
+      switch (this.tape.tag(this.index)) {
+        case '{':
+          JSONHash hash = new JSONHash();
+          for (Cursor child = first(); child != null; child = child.next()) {
+            hash.set(new JSONString(child.key()), child.toJSONValue());
+          } // for
+          return hash;
+        case '[':
+          JSONArray array = new JSONArray();
+          for (Cursor child = first(); child != null; child = child.next()) {
+            array.add(child.toJSONValue());
+          } // for
+          return array;
+        case '"': return new JSONString(stringValue());
+        case 'l': return new JSONInteger(this.tape.word(this.index + 1));
+        case 'n':
+          String text = numberText();
+          if ((text.indexOf('.') < 0) && (text.indexOf('e') < 0) && (text.indexOf('E') < 0)) {
+            return new JSONInteger(text);
+          } // if
+          return new JSONReal(text);
+        case 't': return JSONConstant.TRUE;
+        case 'f': return JSONConstant.FALSE;
+        default: return JSONConstant.NULL;
+      } // switch
+    } // toJSONValue()
+
+    /**
+     * Convert to a string (e.g., for printing).
+     */
+    @Override
+    public String toString() {
+      return toJSONValue().toString();
+    } // toString()
+
+    /**
+     * The text of a number stored in the string buffer.
+     */
+    String numberText() {
+      requireTag('n');
+      return this.tape.string(this.index);
+    } // numberText()
+
+    /**
+     * Check the tag of this value.
+     */
+    void requireTag(int tag) {
+      if (this.tape.tag(this.index) != tag) {
+        throw new IllegalStateException("Expected a value tagged '" + (char) tag + "'");
+      } // if
+    } // requireTag(int)
+
+  } // class Cursor
+
+  /**
+   * Writes parse events onto a tape.
+   */
+  static class Builder implements JSONHandler {
+
+    ByteBuffer words;
+    int count;
+    ByteBuffer strings;
+
+    /**
+     * The word index of each open container, and its member count.
+     */
+    int[] opens;
+    int[] counts;
+    int depth;
+
+    Builder() {
+      this.words = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.nativeOrder());
+      this.strings = ByteBuffer.allocateDirect(1 << 16);
+      this.opens = new int[16];
+      this.counts = new int[16];
+    } // Builder()
+
+    public void startObject() {
+      open('{');
+    } // startObject()
+
+    public void key(JSONString key) {
+      this.counts[this.depth - 1]++;
+      putString('"', key.getValue());
+    } // key(JSONString)
+
+    public void endObject() {
+      close('}');
+    } // endObject()
+
+    public void startArray() {
+      open('[');
+    } // startArray()
+
+    public void endArray() {
+      close(']');
+    } // endArray()
+
+    public void value(JSONValue value) {
+      if ((this.depth > 0) && (this.words.getLong(this.opens[this.depth - 1] << 3) >>> 56 == '[')) {
+        this.counts[this.depth - 1]++;
+      } // if
+      if (value instanceof JSONString) {
+        putString('"', ((JSONString) value).getValue());
+      } else if (value instanceof JSONInteger) {
+        BigInteger i = ((JSONInteger) value).getValue();
+        if (i.bitLength() < 64) {
+          putWord('l', 0);
+          putWord(i.longValue());
+        } else {
+          putString('n', i.toString());
+        } // if/else
+      } else if (value instanceof JSONReal) {
+        putString('n', value.toString());
+      } else if (JSONConstant.TRUE.equals(value)) {
+        putWord('t', 0);
+      } else if (JSONConstant.FALSE.equals(value)) {
+        putWord('f', 0);
+      } else {
+        putWord('N', 0);
+      } // if/else
+    } // value(JSONValue)
+
+    /**
+     * Copy the tape into buffers of exactly the right size.
+     */
+    JSONTape finish() {
+      ByteBuffer finalWords = ByteBuffer.allocateDirect(this.count << 3).order(ByteOrder.nativeOrder());
+      finalWords.put(this.words.flip());
+      ByteBuffer finalStrings = ByteBuffer.allocateDirect(Math.max(this.strings.position(), 1));
+      finalStrings.put(this.strings.flip());
+      return new JSONTape(finalWords.clear(), finalStrings.clear());
+    } // finish()
+
+    /**
+     * Start a container.
+     */
+    void open(int tag) {
+      if ((this.depth > 0) && (this.words.getLong(this.opens[this.depth - 1] << 3) >>> 56 == '[')) {
+        this.counts[this.depth - 1]++;
+      } // if
+      if (this.depth == this.opens.length) {
+        this.opens = Arrays.copyOf(this.opens, this.depth * 2);
+        this.counts = Arrays.copyOf(this.counts, this.depth * 2);
+      } // if
+      this.opens[this.depth] = this.count;
+      this.counts[this.depth] = 0;
+      this.depth++;
+      putWord(tag, 0);
+    } // open(int)
+
+    /**
+     * End a container, filling in its open word.
+     */
+    void close(int tag) {
+      this.depth--;
+      int open = this.opens[this.depth];
+      long count = Math.min(this.counts[this.depth], SATURATED);
+      putWord(tag, open);
+      this.words.putLong(open << 3,
+          (this.words.getLong(open << 3) & 0xFF00000000000000L) | (count << 32) | this.count);
+    } // close(int)
+
+    /**
+     * Append a tagged word.
+     */
+    void putWord(int tag, long payload) {
+      putWord(((long) tag << 56) | payload);
+    } // putWord(int, long)
+
+    /**
+     * Append a raw word.
+     */
+    void putWord(long word) {
+      if (!this.words.hasRemaining()) {
+        this.words = grow(this.words).order(ByteOrder.nativeOrder());
+      } // if
+      this.words.putLong(word);
+      this.count++;
+    } // putWord(long)
+
+    /**
+     * Append a string and a word tagged to point at it.
+     */
+    void putString(int tag, String str) {
+      byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+      while (this.strings.remaining() < bytes.length + 4) {
+        this.strings = grow(this.strings);
+      } // while
+      int offset = this.strings.position();
+      this.strings.putInt(bytes.length);
+      this.strings.put(bytes);
+      putWord(tag, offset);
+    } // putString(int, String)
+
+    /**
+     * Double the capacity of a buffer, keeping its contents, up to
+     * MAX_CAPACITY.
+     */
+    static ByteBuffer grow(ByteBuffer buffer) {
+      int capacity = buffer.capacity();
+      if (capacity >= MAX_CAPACITY) {
+        throw new IllegalStateException("Document too large for a tape");
+      } // if
+      ByteBuffer bigger = ByteBuffer.allocateDirect((int) Math.min(2L * capacity, MAX_CAPACITY));
+      bigger.put(buffer.flip());
+      return bigger;
+    } // grow(ByteBuffer)
+
+  } // class Builder
+
+} // class JSONTape
@@ -0,0 +1,199 @@
+import java.util.Arrays;
+
+/**
+ * Builds a JSONValue tree from parse events, optionally computing the
+ * tree's fingerprint (see JSONFingerprint) along the way.
+ */
+public class JSONTreeBuilder implements JSONHandler {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Whether to compute fingerprints.
+   */
+  boolean fingerprinting;
+
+  /**
+   * The open containers, outermost first.
+   */
+  JSONValue[] containers;
+
+  /**
+   * The pending key of each open object.
+   */
+  JSONString[] keys;
+
+  /**
+   * The partial fingerprint of each open container.
+   */
+  long[] hashes;
+
+  /**
+   * The fingerprint of the pending key of each open object.
+   */
+  long[] keyHashes;
+
+  /**
+   * The number of members seen so far in each open object.
+   */
+  int[] sizes;
+
+  /**
+   * The number of open containers.
+   */
+  int depth;
+
+  /**
+   * The completed value, once there is one.
+   */
+  JSONValue result;
+
+  /**
+   * The fingerprint of the completed value.
+   */
+  long hash;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a tree without fingerprints.
+   */
+  public JSONTreeBuilder() {
+    this(false);
+  } // JSONTreeBuilder()
+
+  /**
+   * Build a tree, computing its fingerprint if fingerprinting is set.
+   */
+  public JSONTreeBuilder(boolean fingerprinting) {
+    this.fingerprinting = fingerprinting;
+    this.containers = new JSONValue[16];
+    this.keys = new JSONString[16];
+    this.hashes = new long[16];
+    this.keyHashes = new long[16];
+    this.sizes = new int[16];
+    this.depth = 0;
+  } // JSONTreeBuilder(boolean)
+
+  // +--------+------------------------------------------------------
+  // | Events |
+  // +--------+
+
+  public void startObject() {
+    push(new JSONHash(), 0);
+  } // startObject()
+
+  public void key(JSONString key) {
+    this.keys[this.depth - 1] = key;
+    if (this.fingerprinting) {
+      this.keyHashes[this.depth - 1] = JSONFingerprint.string(key.getValue());
+    } // if
+  } // key(JSONString)
+
+  public void endObject() {
+    JSONValue object = pop();
+    attach(object, this.fingerprinting
+        ? JSONFingerprint.object(this.hashes[this.depth], this.sizes[this.depth]) : 0);
+  } // endObject()
+
+  public void startArray() {
+    push(new JSONArray(), JSONFingerprint.ARRAY);
+  } // startArray()
+
+  public void endArray() {
+    JSONValue array = pop();
+    attach(array, this.fingerprinting ? JSONFingerprint.array(this.hashes[this.depth]) : 0);
+  } // endArray()
+
+  public void value(JSONValue value) {
+    attach(value, this.fingerprinting ? JSONFingerprint.of(value) : 0);
+  } // value(JSONValue)
+
+  // +--------------------+------------------------------------------
+  // | Additional methods |
+  // +--------------------+
+
+  /**
+   * Get the completed value, or null if the events so far do not form one.
+   */
+  public JSONValue result() {
+    return this.result;
+  } // result()
+
+  /**
+   * Get the fingerprint of the completed value.
+   */
+  public long fingerprint() {
+    return this.hash;
+  } // fingerprint()
+
+  // +---------+-----------------------------------------------------
+  // | Helpers |
+  // +---------+
+
+  /**
+   * Open a container.
+   */
+  void push(JSONValue container, long hash) {
+    if (this.depth == this.containers.length) {
+      int capacity = this.depth * 2;
+      this.containers = Arrays.copyOf(this.containers, capacity);
+      this.keys = Arrays.copyOf(this.keys, capacity);
+      this.hashes = Arrays.copyOf(this.hashes, capacity);
+      this.keyHashes = Arrays.copyOf(this.keyHashes, capacity);
+      this.sizes = Arrays.copyOf(this.sizes, capacity);
+    } // if
+    this.containers[this.depth] = container;
+    this.hashes[this.depth] = hash;
+    this.sizes[this.depth] = 0;
+    this.depth++;
+  } // push(JSONValue, long)
+
+  /**
+   * Close the innermost container, returning it.
+   */
+  JSONValue pop() {
+    this.depth--;
+    JSONValue container = this.containers[this.depth];
+    this.containers[this.depth] = null;
+    return container;
+  } // pop()
+
+  /**
+   * Put a completed value into the innermost open container.
+   */
+  void attach(JSONValue value, long hash) {
+    if (this.depth == 0) {
+      this.result = value;
+      this.hash = hash;
+      return;
+    } // if
+    int top = this.depth - 1;
+    JSONValue container = this.containers[top];
+    if (container instanceof JSONArray) {
+      ((JSONArray) container).add(value);
+      if (this.fingerprinting) {
+        this.hashes[top] = JSONFingerprint.element(this.hashes[top], hash);
+      } // if
+    } else {
+      JSONHash object = (JSONHash) container;
+      if (this.fingerprinting) {
+        JSONValue previous = object.get(this.keys[top]);
+        if (previous != null) {
+          // A duplicate key: set keeps the last value, so take the
+          // earlier member back out, as if it had never been seen.
+          this.hashes[top] -= JSONFingerprint.member(0, this.keyHashes[top], JSONFingerprint.of(previous));
+        } else {
+          this.sizes[top]++;
+        } // if/else
+        this.hashes[top] = JSONFingerprint.member(this.hashes[top], this.keyHashes[top], hash);
+      } // if
+      object.set(this.keys[top], value);
+    } // if/else
+  } // attach(JSONValue, long)
+
+} // class JSONTreeBuilder
@@ -0,0 +1,372 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes JSON values straight to UTF-8 bytes, skipping the char encoding,
+ * locking, and error swallowing of writeJSON(PrintWriter).
+ *
+ * Output is compact (no spaces) and escaped as in JSONString.  Bytes are
+ * encoded into a small set of large chunks that each thread reuses from
+ * one write to the next; once all the chunks are full they are flushed
+ * together, as one gathering write when the channel supports it.
+ */
+public class JSONUtf8Writer {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The size of each chunk.
+   */
+  static final int CHUNK_SIZE = 32 * 1024;
+
+  /**
+   * The number of chunks filled before a flush.
+   */
+  static final int CHUNKS = 4;
+
+  static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+  static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+  static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * Each thread's writer, reused between writes.
+   */
+  static final ThreadLocal<JSONUtf8Writer> POOL = ThreadLocal.withInitial(JSONUtf8Writer::new);
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The chunks, and the same memory as buffers for channel writes.
+   */
+  byte[][] chunks;
+  ByteBuffer[] buffers;
+
+  /**
+   * The chunk being filled.
+   */
+  int chunk;
+
+  /**
+   * The next free byte in the chunk being filled.
+   */
+  int pos;
+
+  /**
+   * Where flushed bytes go; exactly one is non-null during a write.
+   */
+  OutputStream stream;
+  WritableByteChannel channel;
+
+  /**
+   * Whether a write on this thread is using this writer.
+   */
+  boolean busy;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Allocate the chunks.
+   */
+  JSONUtf8Writer() {
+    this.chunks = new byte[CHUNKS][CHUNK_SIZE];
+    this.buffers = new ByteBuffer[CHUNKS];
+    for (int i = 0; i < CHUNKS; i++) {
+      this.buffers[i] = ByteBuffer.wrap(this.chunks[i]);
+    } // for
+  } // JSONUtf8Writer()
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Write a value as UTF-8 to a stream.  The stream is not flushed.
+   */
+  public static void write(JSONValue value, OutputStream out) throws IOException {
+    JSONUtf8Writer writer = acquire();
+    try {
+      writer.stream = out;
+      writer.value(value);
+      writer.flush();
+    } finally {
+      writer.release();
+    } // try/finally
+  } // write(JSONValue, OutputStream)
+
+  /**
+   * Write a value as UTF-8 to a channel, using gathering writes when the
+   * channel supports them.
+   */
+  public static void write(JSONValue value, WritableByteChannel out) throws IOException {
+    JSONUtf8Writer writer = acquire();
+    try {
+      writer.channel = out;
+      writer.value(value);
+      writer.flush();
+    } finally {
+      writer.release();
+    } // try/finally
+  } // write(JSONValue, WritableByteChannel)
+
+  /**
+   * Convert a value to UTF-8 bytes.
+   */
+  public static byte[] toBytes(JSONValue value) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      write(value, out);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);  // ByteArrayOutputStream does not fail
+    } // try/catch
+    return out.toByteArray();
+  } // toBytes(JSONValue)
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Get this thread's writer, or a fresh one if it is already in use
+   * (e.g., a value's toString writes JSON).
+   */
+  static JSONUtf8Writer acquire() {
+    JSONUtf8Writer writer = POOL.get();
+    if (writer.busy) {
+      writer = new JSONUtf8Writer();
+    } // if
+    writer.busy = true;
+    writer.chunk = 0;
+    writer.pos = 0;
+    return writer;
+  } // acquire()
+
+  /**
+   * Finish with a writer.
+   */
+  void release() {
+    this.stream = null;
+    this.channel = null;
+    this.busy = false;
+  } // release()
+
+  /**
+   * Encode a value.
+   */
+  void value(JSONValue value) throws IOException {
+    if (value instanceof JSONString) {
+      string(((JSONString) value).getValue());
+    } else if (value instanceof JSONInteger) {
+      BigInteger i = ((JSONInteger) value).getValue();
+      if (i.bitLength() < 64) {
+        number(i.longValue());
+      } else {
+        ascii(i.toString());
+      } // if/else
+    } else if (value instanceof JSONReal) {
+      ascii(value.toString());
+    } else if (value instanceof JSONArray) {
+      JSONArray array = (JSONArray) value;
+      put('[');
+      for (int i = 0; i < array.size(); i++) {
+        if (i > 0) {
+          put(',');
+        } // if
+        value(array.get(i));
+      } // for
+      put(']');
+    } else if (value instanceof JSONHash) {
+      put('{');
+      boolean first = true;
+      for (KVPair<JSONString, JSONValue> pair : (JSONHash) value) {
+        if (!first) {
+          put(',');
+        } // if
+        first = false;
+        string(pair.key().getValue());
+        put(':');
+        value(pair.value());
+      } // for
+      put('}');
+    } else if (JSONConstant.TRUE.equals(value)) {
+      bytes(TRUE);
+    } else if (JSONConstant.FALSE.equals(value)) {
+      bytes(FALSE);
+    } else if (JSONConstant.NULL.equals(value)) {
+      bytes(NULL);
+    } else {
+      ascii(value.toString());
+    } // if/else
+  } // value(JSONValue)
+
+  /**
+   * Encode a quoted, escaped string.  JSONString.nextEscape finds the
+   * escapes, and the runs between them are encoded without further checks.
+   */
+  void string(String str) throws IOException {
+    put('"');
+    int n = str.length();
+    int start = 0;
+    for (int i = JSONString.nextEscape(str, 0, n); i < n; i = JSONString.nextEscape(str, start, n)) {
+      encode(str, start, i);
+      ascii(JSONString.escape(str.charAt(i)));
+      start = i + 1;
+    } // for
+    encode(str, start, n);
+    put('"');
+  } // string(String)
+
+  /**
+   * Encode the characters of str from start to end, none of which need
+   * an escape (so every surrogate there is half of a pair).
+   */
+  void encode(String str, int start, int end) throws IOException {
+    int i = start;
+    while (i < end) {
+      byte[] buf = this.chunks[this.chunk];
+      // Each char takes at most 6 bytes, so this many are sure to fit.
+      int room = (buf.length - this.pos) / 6;
+      if (room == 0) {
+        advance();
+        continue;
+      } // if
+      int stop = Math.min(end, i + room);
+      int p = this.pos;
+      for (; i < stop; i++) {
+        char ch = str.charAt(i);
+        if (ch < 0x80) {
+          buf[p++] = (byte) ch;
+        } else if (ch < 0x800) {
+          buf[p++] = (byte) (0xc0 | (ch >> 6));
+          buf[p++] = (byte) (0x80 | (ch & 0x3f));
+        } else if (Character.isHighSurrogate(ch) && (i + 1 < end)
+            && Character.isLowSurrogate(str.charAt(i + 1))) {
+          int code = Character.toCodePoint(ch, str.charAt(++i));
+          buf[p++] = (byte) (0xf0 | (code >> 18));
+          buf[p++] = (byte) (0x80 | ((code >> 12) & 0x3f));
+          buf[p++] = (byte) (0x80 | ((code >> 6) & 0x3f));
+          buf[p++] = (byte) (0x80 | (code & 0x3f));
+        } else {
+          buf[p++] = (byte) (0xe0 | (ch >> 12));
+          buf[p++] = (byte) (0x80 | ((ch >> 6) & 0x3f));
+          buf[p++] = (byte) (0x80 | (ch & 0x3f));
+        } // if/else
+      } // for
+      this.pos = p;
+    } // while
+  } // encode(String, int, int)
+
+  /**
+   * Encode a long in decimal without allocating.
+   */
+  void number(long l) throws IOException {
+    if (l == Long.MIN_VALUE) {
+      ascii(Long.toString(l));
+      return;
+    } // if
+    if (CHUNK_SIZE - this.pos < 20) {
+      advance();
+    } // if
+    byte[] buf = this.chunks[this.chunk];
+    if (l < 0) {
+      buf[this.pos++] = '-';
+      l = -l;
+    } // if
+    int digits = 1;
+    for (long rest = l / 10; rest != 0; rest /= 10) {
+      digits++;
+    } // for
+    int p = this.pos + digits;
+    this.pos = p;
+    do {
+      buf[--p] = (byte) ('0' + (l % 10));
+      l /= 10;
+    } while (l != 0);
+  } // number(long)
+
+  /**
+   * Encode an ASCII string as is.
+   */
+  void ascii(String str) throws IOException {
+    for (int i = 0; i < str.length(); i++) {
+      put(str.charAt(i));
+    } // for
+  } // ascii(String)
+
+  /**
+   * Copy some bytes.
+   */
+  void bytes(byte[] bytes) throws IOException {
+    for (byte b : bytes) {
+      put(b);
+    } // for
+  } // bytes(byte[])
+
+  /**
+   * Encode one ASCII character.
+   */
+  void put(int ch) throws IOException {
+    if (this.pos == CHUNK_SIZE) {
+      advance();
+    } // if
+    this.chunks[this.chunk][this.pos++] = (byte) ch;
+  } // put(int)
+
+  /**
+   * Move on to the next chunk, flushing first if they are all full.
+   */
+  void advance() throws IOException {
+    this.buffers[this.chunk].limit(this.pos);
+    if (this.chunk + 1 == CHUNKS) {
+      flush();
+    } else {
+      this.chunk++;
+      this.pos = 0;
+    } // if/else
+  } // advance()
+
+  /**
+   * Send the filled chunks to the sink and start over.
+   */
+  void flush() throws IOException {
+    this.buffers[this.chunk].limit(this.pos);
+    if (this.stream != null) {
+      for (int i = 0; i <= this.chunk; i++) {
+        this.stream.write(this.chunks[i], 0, this.buffers[i].limit());
+      } // for
+    } else {
+      for (int i = 0; i <= this.chunk; i++) {
+        this.buffers[i].position(0);
+      } // for
+      if (this.channel instanceof GatheringByteChannel) {
+        GatheringByteChannel gathering = (GatheringByteChannel) this.channel;
+        while (this.buffers[this.chunk].hasRemaining()) {
+          gathering.write(this.buffers, 0, this.chunk + 1);
+        } // while
+      } else {
+        for (int i = 0; i <= this.chunk; i++) {
+          while (this.buffers[i].hasRemaining()) {
+            this.channel.write(this.buffers[i]);
+          } // while
+        } // for
+      } // if/else
+    } // if/else
+    for (int i = 0; i <= this.chunk; i++) {
+      this.buffers[i].clear();
+    } // for
+    this.chunk = 0;
+    this.pos = 0;
+  } // flush()
+
+} // class JSONUtf8Writer
@@ -0,0 +1,22 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JDK Flight Recorder event for each JSON write.
+ */
+@Name("json.Write")
+@Label("JSON Write")
+@Category("JSON")
+@Description("Writing of one JSON value")
+class JSONWriteEvent extends Event {
+
+  @Label("Characters")
+  long chars;
+
+  @Label("Failed")
+  boolean failed;
+
+} // class JSONWriteEvent
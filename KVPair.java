@@ -49,6 +49,14 @@ public class KVPair<K,V> {
     return ((this.key.equals(other.key)) && (this.value.equals(other.value)));
   } // equals(KVPair<K,V>)
 
+  /**
+   * Compute the hash code.
+   */
+  @Override
+  public int hashCode() {
+    return this.key.hashCode() ^ ((this.value == null) ? 0 : this.value.hashCode());
+  } // hashCode()
+
   /**
    * Convert to string form.
    */
@@ -0,0 +1,201 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hammers a JSONConcurrentHash from many threads at once and checks the
+ * results, then compares its read throughput with a JSONHash behind one
+ * lock.
+ *
+ * Writers count with compute, so no increment may be lost.  Claimers
+ * race putIfAbsent on the same keys, so each key must have exactly one
+ * winner.  Meanwhile readers check that every count only goes up and
+ * iterate and print the whole hash, which must never fail.  Exits with
+ * status 1 if any check fails.
+ *
+ * Compile and run from the top of the repository:
+ *
+ *   javac -d out *.java bench/*.java
+ *   java -cp out ConcurrentHashStress
+ */
+public class ConcurrentHashStress {
+
+  static final int KEYS = 64;
+  static final int WRITERS = 4;
+  static final int CLAIMERS = 2;
+  static final int READERS = 8;
+  static final int OPS = 200000;
+  static final int CLAIMS = 20000;
+
+  public static void main(String[] args) throws Exception {
+    JSONConcurrentHash hash = new JSONConcurrentHash();
+    JSONString[] keys = new JSONString[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      keys[i] = new JSONString("k" + i);
+    } // for
+    ExecutorService pool = Executors.newFixedThreadPool(WRITERS + CLAIMERS + READERS);
+    AtomicBoolean stop = new AtomicBoolean();
+    AtomicLong reads = new AtomicLong();
+    AtomicLong anomalies = new AtomicLong();
+    ConcurrentHashMap<Integer, Integer> winners = new ConcurrentHashMap<>();
+    List<Future<?>> updates = new ArrayList<>();
+    for (int w = 0; w < WRITERS; w++) {
+      Random random = new Random(w);
+      updates.add(pool.submit(() -> {
+        for (int i = 0; i < OPS; i++) {
+          hash.compute(keys[random.nextInt(KEYS)],
+              (key, value) -> new JSONInteger(count(value) + 1));
+        } // for
+      }));
+    } // for
+    for (int c = 0; c < CLAIMERS; c++) {
+      int id = c;
+      updates.add(pool.submit(() -> {
+        for (int i = 0; i < CLAIMS; i++) {
+          if (hash.putIfAbsent(new JSONString("claim" + i), new JSONInteger(id)) == null
+              && winners.put(i, id) != null) {
+            anomalies.incrementAndGet();
+          } // if
+        } // for
+      }));
+    } // for
+    List<Future<?>> readers = new ArrayList<>();
+    for (int r = 0; r < READERS; r++) {
+      readers.add(pool.submit(() -> {
+        long[] last = new long[KEYS];
+        long n = 0;
+        while (!stop.get()) {
+          for (int i = 0; i < KEYS; i++) {
+            long count = count(hash.get(keys[i]));
+            if (count < last[i]) {
+              anomalies.incrementAndGet();
+            } // if
+            last[i] = count;
+            n++;
+          } // for
+          for (KVPair<JSONString, JSONValue> pair : hash) {
+            if (pair.value() == null) {
+              anomalies.incrementAndGet();
+            } // if
+          } // for
+          hash.toString();
+        } // while
+        reads.addAndGet(n);
+      }));
+    } // for
+    for (Future<?> update : updates) {
+      update.get();
+    } // for
+    stop.set(true);
+    for (Future<?> reader : readers) {
+      reader.get();
+    } // for
+    pool.shutdown();
+
+    long total = 0;
+    for (JSONString key : keys) {
+      total += count(hash.get(key));
+    } // for
+    boolean ok = check("increments", total, (long) WRITERS * OPS)
+        & check("claimed keys", winners.size(), CLAIMS)
+        & check("size", hash.size(), KEYS + CLAIMS)
+        & check("anomalies", anomalies.get(), 0);
+    System.out.printf("%d reads checked%n", reads.get());
+
+    JSONHash plain = new JSONHash();
+    plain.set(new JSONString("a"), new JSONInteger(1));
+    JSONConcurrentHash copy = new JSONConcurrentHash(plain);
+    ok &= check("copy equals source", copy.equals(plain) && plain.equals(copy) ? 1 : 0, 1);
+    copy.set(new JSONString("b"), null);
+    ok &= check("null stored as JSON null",
+        JSONConstant.NULL.equals(copy.get(new JSONString("b"))) ? 1 : 0, 1);
+
+    for (int threads : new int[] { 1, 2, 4 }) {
+      System.out.printf("%d readers, 1 writer: locked JSONHash %d Mops/s, JSONConcurrentHash %d Mops/s%n",
+          threads, throughput(new JSONHash(), true, threads, keys),
+          throughput(new JSONConcurrentHash(), false, threads, keys));
+    } // for
+    System.out.println(ok ? "OK" : "FAILED");
+    if (!ok) {
+      System.exit(1);
+    } // if
+  } // main(String[])
+
+  /**
+   * The count in a value, or 0 if there is none.
+   */
+  static long count(JSONValue value) {
+    return (value == null) ? 0 : ((JSONInteger) value).getValue().longValue();
+  } // count(JSONValue)
+
+  /**
+   * Report one check, returning whether it passed.
+   */
+  static boolean check(String what, long actual, long expected) {
+    boolean passed = (actual == expected);
+    System.out.printf("%-26s %d (expected %d)%s%n", what, actual, expected, passed ? "" : "  FAILED");
+    return passed;
+  } // check(String, long, long)
+
+  /**
+   * Count the gets that threads readers manage in a second while one
+   * writer keeps setting, in millions.  With lock, every call on hash
+   * holds one shared monitor, as a plain JSONHash would need.
+   */
+  static long throughput(JSONHash hash, boolean lock, int threads, JSONString[] keys)
+      throws InterruptedException {
+    Object monitor = new Object();
+    for (JSONString key : keys) {
+      hash.set(key, new JSONInteger(0));
+    } // for
+    AtomicBoolean stop = new AtomicBoolean();
+    AtomicLong ops = new AtomicLong();
+    Thread writer = new Thread(() -> {
+      for (int i = 0; !stop.get(); i++) {
+        JSONString key = keys[i % keys.length];
+        if (lock) {
+          synchronized (monitor) {
+            hash.set(key, new JSONInteger(i));
+          } // synchronized
+        } else {
+          hash.set(key, new JSONInteger(i));
+        } // if/else
+        Thread.yield();
+      } // for
+    });
+    writer.start();
+    Thread[] readers = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      readers[t] = new Thread(() -> {
+        long n = 0;
+        for (int i = 0; !stop.get(); i++) {
+          JSONString key = keys[i % keys.length];
+          if (lock) {
+            synchronized (monitor) {
+              hash.get(key);
+            } // synchronized
+          } else {
+            hash.get(key);
+          } // if/else
+          n++;
+        } // for
+        ops.addAndGet(n);
+      });
+      readers[t].start();
+    } // for
+    Thread.sleep(1000);
+    stop.set(true);
+    writer.join();
+    for (Thread reader : readers) {
+      reader.join();
+    } // for
+    return ops.get() / 1000000;
+  } // throughput(JSONHash, boolean, int, JSONString[])
+
+} // class ConcurrentHashStress
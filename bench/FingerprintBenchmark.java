@@ -0,0 +1,104 @@
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * Measures the cost of computing a fingerprint while parsing, against a
+ * plain parse and against parsing and then walking the tree with
+ * JSONFingerprint.of.
+ *
+ * Compile and run from the top of the repository:
+ *
+ *   javac -d out *.java bench/FingerprintBenchmark.java
+ *   java -cp out FingerprintBenchmark [objects]
+ */
+public class FingerprintBenchmark {
+
+  static final int RUNS = 15;
+
+  public static void main(String[] args) throws ParseException, IOException {
+    int objects = (args.length > 0) ? Integer.parseInt(args[0]) : 100000;
+    String doc = document(objects);
+    // Parse-time fingerprints must match of() on the tree, including
+    // when a duplicate key leaves only its last value in the tree.
+    String[] checks = { doc, "{\"a\":1,\"a\":2}", "{\"a\":2}", "{\"a\":{\"b\":[1]},\"c\":3,\"a\":2}" };
+    for (String check : checks) {
+      if (JSON.parseWithFingerprint(check).value() != JSONFingerprint.of(JSON.parse(check))) {
+        throw new IllegalStateException("Fingerprints disagree");
+      } // if
+    } // for
+    if (!JSON.parseWithFingerprint(checks[1]).value().equals(JSON.parseWithFingerprint(checks[2]).value())) {
+      throw new IllegalStateException("Duplicate key changes the fingerprint");
+    } // if
+    long[] plain = time(doc, 0);
+    long[] during = time(doc, 1);
+    long[] after = time(doc, 2);
+    double mb = doc.length() / (1024.0 * 1024.0);
+    System.out.printf("%d objects, %.1f MB, median of %d runs%n", objects, mb, RUNS);
+    report("parse", plain, mb, plain);
+    report("parseWithFingerprint", during, mb, plain);
+    report("parse, then of()", after, mb, plain);
+  } // main(String[])
+
+  /**
+   * Time one way of parsing, after warming it up.  The heap is cleaned
+   * before each run so that one run's garbage is not charged to the next.
+   */
+  static long[] time(String doc, int how) throws ParseException, IOException {
+    long[] nanos = new long[RUNS];
+    long sink = 0;
+    for (int run = -5; run < RUNS; run++) {
+      System.gc();
+      long start = System.nanoTime();
+      if (how == 0) {
+        sink += (JSON.parse(doc) != null) ? 1 : 0;
+      } else if (how == 1) {
+        sink += JSON.parseWithFingerprint(doc).value();
+      } else {
+        sink += JSONFingerprint.of(JSON.parse(doc));
+      } // if/else
+      if (run >= 0) {
+        nanos[run] = System.nanoTime() - start;
+      } // if
+    } // for
+    if (sink == 42) {
+      System.out.println();  // Keep sink alive.
+    } // if
+    return nanos;
+  } // time(String, int)
+
+  /**
+   * Print the median of some timings.
+   */
+  static void report(String name, long[] nanos, double mb, long[] baseline) {
+    long median = median(nanos);
+    System.out.printf("  %-22s %7.1f ms %7.1f MB/s %+6.1f%%%n", name, median / 1e6,
+        mb / (median / 1e9), 100.0 * (median - median(baseline)) / median(baseline));
+  } // report(String, long[], double, long[])
+
+  static long median(long[] nanos) {
+    long[] sorted = nanos.clone();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  } // median(long[])
+
+  /**
+   * Build a document of small records with strings, numbers, and nesting.
+   */
+  static String document(int objects) {
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < objects; i++) {
+      if (i > 0) {
+        sb.append(',');
+      } // if
+      sb.append("{\"id\":").append(i)
+          .append(",\"name\":\"user-").append(i).append('"')
+          .append(",\"score\":").append(i * 0.25)
+          .append(",\"tags\":[\"a\",\"b\",").append(i % 7).append(']')
+          .append(",\"active\":").append(i % 2 == 0)
+          .append('}');
+    } // for
+    return sb.append(']').toString();
+  } // document(int)
+
+} // class FingerprintBenchmark
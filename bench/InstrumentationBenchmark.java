@@ -0,0 +1,80 @@
+import java.io.IOException;
+import java.io.StringReader;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * Checks that instrumentation costs nothing while it is off.  Parses the
+ * same document to a handler that does nothing, three ways: with the
+ * parser called directly, through JSON.parse with no listener and no
+ * flight recording (the disabled path), and through JSON.parse with a
+ * JSONMetrics listener installed.  The first two are interleaved run by
+ * run, so drift in the machine affects both alike.
+ *
+ * Compile and run from the top of the repository:
+ *
+ *   javac -d out *.java bench/InstrumentationBenchmark.java
+ *   java -cp out InstrumentationBenchmark [objects]
+ */
+public class InstrumentationBenchmark {
+
+  static final int RUNS = 31;
+
+  public static void main(String[] args) throws ParseException, IOException {
+    int objects = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+    String doc = FingerprintBenchmark.document(objects);
+    JSONHandler nothing = new Nothing();
+    long[] direct = new long[RUNS];
+    long[] disabled = new long[RUNS];
+    long[] enabled = new long[RUNS];
+    for (int run = -10; run < RUNS; run++) {
+      long start = System.nanoTime();
+      new JSONParser(new StringReader(doc), nothing).parse();
+      long middle = System.nanoTime();
+      JSON.parse(new StringReader(doc), nothing);
+      long end = System.nanoTime();
+      if (run >= 0) {
+        direct[run] = middle - start;
+        disabled[run] = end - middle;
+      } // if
+    } // for
+    JSON.setListener(new JSONMetrics());
+    for (int run = -10; run < RUNS; run++) {
+      long start = System.nanoTime();
+      JSON.parse(new StringReader(doc), nothing);
+      if (run >= 0) {
+        enabled[run] = System.nanoTime() - start;
+      } // if
+    } // for
+    JSON.setListener(null);
+    double mb = doc.length() / (1024.0 * 1024.0);
+    System.out.printf("%d objects, %.1f MB, median of %d runs%n", objects, mb, RUNS);
+    FingerprintBenchmark.report("JSONParser directly", direct, mb, direct);
+    FingerprintBenchmark.report("JSON.parse, disabled", disabled, mb, direct);
+    FingerprintBenchmark.report("JSON.parse, listener", enabled, mb, direct);
+  } // main(String[])
+
+  /**
+   * A handler that ignores every event, so only the parser is measured.
+   */
+  static class Nothing implements JSONHandler {
+    public void startObject() {
+    } // startObject()
+
+    public void key(JSONString key) {
+    } // key(JSONString)
+
+    public void endObject() {
+    } // endObject()
+
+    public void startArray() {
+    } // startArray()
+
+    public void endArray() {
+    } // endArray()
+
+    public void value(JSONValue value) {
+    } // value(JSONValue)
+  } // class Nothing
+
+} // class InstrumentationBenchmark
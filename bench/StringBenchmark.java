@@ -0,0 +1,168 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.text.ParseException;
+
+/**
+ * Compares string decoding and escaping with the code they replaced.
+ * The document is an array of strings, one in four of which contains
+ * escaped quotes and a newline.
+ *
+ * Decoding: the old parser read one char at a time from a BufferedReader
+ * and appended each to a StringBuilder; that loop is reproduced here over
+ * every string in the document and compared with a full JSON.parse of it
+ * (which also does the structure, so the comparison favours the old code).
+ *
+ * Escaping: the old toString made two String.replace passes per string;
+ * that is compared with JSONString.appendQuoted, as used by toString,
+ * on the strings of the document and on strings that are all escapes
+ * (JSON text held in a string, with Windows paths).
+ *
+ * Compile and run from the top of the repository:
+ *
+ *   javac -d out *.java bench/*.java
+ *   java -Xms1g -Xmx1g -cp out StringBenchmark [strings]
+ */
+public class StringBenchmark {
+
+  static final int RUNS = 15;
+
+  public static void main(String[] args) throws ParseException, IOException {
+    int strings = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+    String doc = document(strings);
+    JSONArray array = (JSONArray) JSON.parse(doc);
+    String[] values = new String[array.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = ((JSONString) array.get(i)).getValue();
+    } // for
+    String[] dense = new String[values.length];
+    long denseChars = 0;
+    for (int i = 0; i < dense.length; i++) {
+      dense[i] = "{\"path\":\"C:\\data\\file" + i + ".json\",\"note\":\"a \\\"quoted\\\" word\"}";
+      denseChars += dense[i].length();
+    } // for
+    JSONHandler nothing = new InstrumentationBenchmark.Nothing();
+    long[] oldDecode = new long[RUNS];
+    long[] newDecode = new long[RUNS];
+    long[] oldEscape = new long[RUNS];
+    long[] newEscape = new long[RUNS];
+    long[] oldDense = new long[RUNS];
+    long[] newDense = new long[RUNS];
+    int check = 0;
+    for (int run = -5; run < RUNS; run++) {
+      System.gc();
+      long t0 = System.nanoTime();
+      check += decodeOld(new BufferedReader(new StringReader(doc)));
+      long t1 = System.nanoTime();
+      JSON.parse(new StringReader(doc), nothing);
+      long t2 = System.nanoTime();
+      check += escapeOld(values);
+      long t3 = System.nanoTime();
+      check += escapeNew(values);
+      long t4 = System.nanoTime();
+      check += escapeOld(dense);
+      long t5 = System.nanoTime();
+      check += escapeNew(dense);
+      long t6 = System.nanoTime();
+      if (run >= 0) {
+        oldDecode[run] = t1 - t0;
+        newDecode[run] = t2 - t1;
+        oldEscape[run] = t3 - t2;
+        newEscape[run] = t4 - t3;
+        oldDense[run] = t5 - t4;
+        newDense[run] = t6 - t5;
+      } // if
+    } // for
+    double mb = doc.length() / (1024.0 * 1024.0);
+    System.out.printf("%d strings, %.1f MB, median of %d runs (check %d)%n",
+        strings, mb, RUNS, check);
+    FingerprintBenchmark.report("decode, char at a time", oldDecode, mb, oldDecode);
+    FingerprintBenchmark.report("decode, JSON.parse", newDecode, mb, oldDecode);
+    FingerprintBenchmark.report("escape, String.replace", oldEscape, mb, oldEscape);
+    FingerprintBenchmark.report("escape, appendQuoted", newEscape, mb, oldEscape);
+    double denseMb = denseChars / (1024.0 * 1024.0);
+    FingerprintBenchmark.report("dense, String.replace", oldDense, denseMb, oldDense);
+    FingerprintBenchmark.report("dense, appendQuoted", newDense, denseMb, oldDense);
+  } // main(String[])
+
+  /**
+   * Decode every string in the document the way the old parser did,
+   * returning the total length so the work is not optimized away.
+   */
+  static int decodeOld(Reader source) throws IOException {
+    int total = 0;
+    int c;
+    while ((c = source.read()) != -1) {
+      if (c != '"') {
+        continue;
+      } // if
+      StringBuilder sb = new StringBuilder();
+      boolean escaped = false;
+      while ((c = source.read()) != -1) {
+        char character = (char) c;
+        if (escaped) {
+          if (character == 'n') {
+            sb.append('\n');
+          } else if (character == 't') {
+            sb.append('\t');
+          } else if (character == '\\') {
+            sb.append('\\');
+          } else if (character == '"') {
+            sb.append('"');
+          } // if/else
+          escaped = false;
+        } else if (character == '\\') {
+          escaped = true;
+        } else if (character == '"') {
+          break;
+        } else {
+          sb.append(character);
+        } // if/else
+      } // while
+      total += sb.toString().length();
+    } // while
+    return total;
+  } // decodeOld(Reader)
+
+  /**
+   * Escape values the way the old toString did, returning the length.
+   */
+  static int escapeOld(String[] values) {
+    StringBuilder result = new StringBuilder();
+    for (String value : values) {
+      result.append("\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"");
+    } // for
+    return result.length();
+  } // escapeOld(String[])
+
+  /**
+   * Escape values the way toString does now, returning the length.
+   */
+  static int escapeNew(String[] values) {
+    StringBuilder result = new StringBuilder();
+    for (String value : values) {
+      JSONString.appendQuoted(result, value);
+    } // for
+    return result.length();
+  } // escapeNew(String[])
+
+  /**
+   * Build an array of strings of typical lengths.
+   */
+  static String document(int strings) {
+    StringBuilder doc = new StringBuilder("[");
+    for (int i = 0; i < strings; i++) {
+      if (i > 0) {
+        doc.append(',');
+      } // if
+      doc.append("\"The quick brown fox jumps over the lazy dog, number ").append(i);
+      if (i % 4 == 0) {
+        doc.append(", said \\\"someone\\\"\\n");
+      } // if
+      doc.append('"');
+    } // for
+    return doc.append(']').toString();
+  } // document(int)
+
+} // class StringBenchmark
@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+
+/**
+ * Compares JSONUtf8Writer with writeJSON(PrintWriter) on the same
+ * response-sized value, for throughput and for bytes allocated per
+ * write.  Each write goes to a stream that counts and discards the bytes,
+ * so only the serializer is measured.  The PrintWriter path is set up the
+ * way a server writes a response: a PrintWriter over an OutputStreamWriter
+ * for UTF-8, made for each response and flushed at the end.  (writeJSON
+ * puts spaces after commas and colons, so it writes somewhat more bytes;
+ * throughput is reported for the compact size.)  What JSONUtf8Writer
+ * still allocates comes mostly from walking the tree, e.g. the pair list
+ * that JSONHash.iterator builds.
+ *
+ * Allocation is read with com.sun.management.ThreadMXBean, so this needs
+ * a HotSpot-based JVM.
+ *
+ * Compile and run from the top of the repository:
+ *
+ *   javac -d out *.java bench/*.java
+ *   java -Xms1g -Xmx1g -cp out Utf8WriterBenchmark [objects]
+ */
+public class Utf8WriterBenchmark {
+
+  static final int RUNS = 15;
+  static final int WRITES = 200;
+
+  public static void main(String[] args) throws ParseException, IOException {
+    int objects = (args.length > 0) ? Integer.parseInt(args[0]) : 1000;
+    JSONValue value = JSON.parse(FingerprintBenchmark.document(objects));
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+    Sink sink = new Sink();
+    long[] printNanos = new long[RUNS];
+    long[] utf8Nanos = new long[RUNS];
+    long[] printBytes = new long[RUNS];
+    long[] utf8Bytes = new long[RUNS];
+    for (int run = -10; run < RUNS; run++) {
+      sink.count = 0;
+      long a0 = threads.getThreadAllocatedBytes(thread);
+      long t0 = System.nanoTime();
+      for (int i = 0; i < WRITES; i++) {
+        PrintWriter pen = new PrintWriter(new OutputStreamWriter(sink, StandardCharsets.UTF_8));
+        value.writeJSON(pen);
+        pen.flush();
+      } // for
+      long t1 = System.nanoTime();
+      long a1 = threads.getThreadAllocatedBytes(thread);
+      long printed = sink.count;
+      sink.count = 0;
+      for (int i = 0; i < WRITES; i++) {
+        JSONUtf8Writer.write(value, sink);
+      } // for
+      long t2 = System.nanoTime();
+      long a2 = threads.getThreadAllocatedBytes(thread);
+      if (run >= 0) {
+        printNanos[run] = t1 - t0;
+        utf8Nanos[run] = t2 - t1;
+        printBytes[run] = (a1 - a0) / WRITES;
+        utf8Bytes[run] = (a2 - a1) / WRITES;
+      } // if
+      if (run == RUNS - 1) {
+        System.out.printf("%d objects, %d bytes per write as PrintWriter, %d as UTF-8, %d writes a run, median of %d runs%n",
+            objects, printed / WRITES, sink.count / WRITES, WRITES, RUNS);
+      } // if
+    } // for
+    double mb = sink.count / (1024.0 * 1024.0);  // The UTF-8 bytes of one run
+    FingerprintBenchmark.report("writeJSON(PrintWriter)", printNanos, mb, printNanos);
+    FingerprintBenchmark.report("JSONUtf8Writer.write", utf8Nanos, mb, printNanos);
+    System.out.printf("  allocated per write: PrintWriter %d bytes, JSONUtf8Writer %d bytes%n",
+        FingerprintBenchmark.median(printBytes), FingerprintBenchmark.median(utf8Bytes));
+  } // main(String[])
+
+  /**
+   * A stream that counts the bytes written to it and keeps none.
+   */
+  static class Sink extends OutputStream {
+    long count;
+
+    @Override
+    public void write(int b) {
+      this.count++;
+    } // write(int)
+
+    @Override
+    public void write(byte[] bytes, int off, int len) {
+      this.count += len;
+    } // write(byte[], int, int)
+  } // class Sink
+
+} // class Utf8WriterBenchmark